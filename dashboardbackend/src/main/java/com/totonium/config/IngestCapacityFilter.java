@@ -0,0 +1,49 @@
+package com.totonium.config;
+
+import com.totonium.service.AudioIngestService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerExceptionResolver;
+
+import java.io.IOException;
+
+/**
+ * Refuses asynchronous uploads while the ingest queue is full, before the multipart body is read. The
+ * DispatcherServlet parses the whole body before any controller or interceptor runs, so without this a refused
+ * upload would still be received in full. Runs after Spring Security, so only authenticated clients see the queue
+ * state; the 503 goes through the regular exception handlers to keep the error body and Retry-After consistent.
+ */
+@Component
+public class IngestCapacityFilter extends OncePerRequestFilter {
+
+    private final AudioIngestService audioIngestService;
+    private final HandlerExceptionResolver handlerExceptionResolver;
+
+    public IngestCapacityFilter(AudioIngestService audioIngestService,
+                                @Qualifier("handlerExceptionResolver") HandlerExceptionResolver handlerExceptionResolver) {
+        this.audioIngestService = audioIngestService;
+        this.handlerExceptionResolver = handlerExceptionResolver;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || !request.getRequestURI().equals("/api/v1/audio/ingest");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        try {
+            audioIngestService.checkCapacity();
+        } catch (RuntimeException e) {
+            handlerExceptionResolver.resolveException(request, response, null, e);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+}
@@ -36,6 +36,11 @@ public class RequestLoggingFilter extends OncePerRequestFilter {
         // Generate and set request ID for tracing
         String requestId = UUID.randomUUID().toString().substring(0, 8);
         MDC.put(REQUEST_ID, requestId);
+
+        if (isBinaryTransfer(request)) {
+            doFilterUnwrapped(request, response, filterChain, requestId);
+            return;
+        }
         
         // Wrap request and response to enable body caching
         ContentCachingRequestWrapper wrappedRequest = new ContentCachingRequestWrapper(request);
@@ -62,7 +67,39 @@ public class RequestLoggingFilter extends OncePerRequestFilter {
         }
     }
 
-    private void logRequest(ContentCachingRequestWrapper request, String requestId) {
+    /**
+     * Audio streams and uploads are logged without body caching: the caching wrappers would buffer whole
+     * files in memory and hide the native response from Tomcat's sendfile. Event streams must reach the client
+     * as they are written.
+     */
+    private void doFilterUnwrapped(HttpServletRequest request, HttpServletResponse response,
+                                   FilterChain filterChain, String requestId) throws ServletException, IOException {
+        long startTime = System.currentTimeMillis();
+        try {
+            logRequest(request, requestId);
+            filterChain.doFilter(request, response);
+            log.info("[{}] <-- {} | Status: {} | Duration: {}ms",
+                    requestId,
+                    response.getStatus(),
+                    getStatusText(response.getStatus()),
+                    System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.error("[{}] Error processing request: {}", requestId, e.getMessage());
+            throw e;
+        } finally {
+            MDC.remove(REQUEST_ID);
+        }
+    }
+
+    private boolean isBinaryTransfer(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        return (uri.startsWith("/api/v1/audio/")
+                && (uri.endsWith("/stream") || uri.endsWith("/peaks") || uri.startsWith("/api/v1/audio/upload") || uri.equals("/api/v1/audio/ingest")))
+                || (uri.startsWith("/api/v1/playlists/") && uri.endsWith("/bundle"))
+                || uri.equals("/api/v1/cues/stream");
+    }
+
+    private void logRequest(HttpServletRequest request, String requestId) {
         String queryString = request.getQueryString();
         String uri = queryString != null ? request.getRequestURI() + "?" + queryString : request.getRequestURI();
         
@@ -75,8 +112,8 @@ public class RequestLoggingFilter extends OncePerRequestFilter {
                 headers);
 
         // Log request body if present and not too large
-        if (log.isDebugEnabled()) {
-            byte[] content = request.getContentAsByteArray();
+        if (log.isDebugEnabled() && request instanceof ContentCachingRequestWrapper cachingRequest) {
+            byte[] content = cachingRequest.getContentAsByteArray();
             if (content.length > 0) {
                 String body = truncate(new String(content, StandardCharsets.UTF_8));
                 log.debug("[{}] Request body: {}", requestId, body);
@@ -121,10 +158,13 @@ public class RequestLoggingFilter extends OncePerRequestFilter {
             case 200 -> "OK";
             case 201 -> "Created";
             case 204 -> "No Content";
+            case 206 -> "Partial Content";
+            case 304 -> "Not Modified";
             case 400 -> "Bad Request";
             case 401 -> "Unauthorized";
             case 403 -> "Forbidden";
             case 404 -> "Not Found";
+            case 416 -> "Range Not Satisfiable";
             case 500 -> "Internal Server Error";
             default -> "";
         };
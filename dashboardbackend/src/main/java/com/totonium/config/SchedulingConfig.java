@@ -0,0 +1,12 @@
+package com.totonium.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled background jobs such as encounter archival.
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
@@ -1,6 +1,7 @@
 package com.totonium.config;
 
 import com.totonium.security.JwtAuthenticationFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -35,11 +36,15 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable())
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(auth -> auth
+                // Completion of an async response (cue event streams) was authorized when the request came in
+                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
                 .requestMatchers("/api/v1/auth/device/trust").permitAll()
                 .requestMatchers("/api/v1/auth/**").permitAll()
                 .requestMatchers("/api/v1/debug/**").permitAll()  // Debug endpoints - disable in production
                 .requestMatchers(HttpMethod.GET, "/api/v1/audio/*/stream").permitAll()
+                .requestMatchers(HttpMethod.HEAD, "/api/v1/audio/*/stream").permitAll()
+                .requestMatchers(HttpMethod.GET, "/api/v1/cues/clock").permitAll()
                 .requestMatchers("/api/v1/combatants/**").authenticated()
                 .requestMatchers("/api/v1/audio/**").authenticated()
                 .requestMatchers("/api/v1/playlists/**").authenticated()
@@ -1,24 +1,34 @@
 package com.totonium.controller;
 
 import com.totonium.dto.AudioDTO;
+import com.totonium.dto.BulkUploadResultDTO;
+import com.totonium.dto.StorageReconcileReportDTO;
 import com.totonium.dto.UploadAudioRequest;
 import com.totonium.dto.UpdateAudioRequest;
+import com.totonium.exception.ConflictException;
+import com.totonium.exception.ResourceNotFoundException;
+import com.totonium.service.AudioBulkUploadService;
+import com.totonium.service.AudioCacheService;
+import com.totonium.service.AudioMetadataService;
+import com.totonium.service.AudioPeaksService;
 import com.totonium.service.AudioService;
+import com.totonium.service.AudioService.StreamSource;
+import com.totonium.service.AudioStreamService;
+import com.totonium.service.StorageReconcileService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.net.MalformedURLException;
-import java.nio.file.Path;
+import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -28,6 +38,12 @@ import java.util.UUID;
 public class AudioController {
 
     private final AudioService audioService;
+    private final AudioBulkUploadService audioBulkUploadService;
+    private final AudioStreamService audioStreamService;
+    private final AudioCacheService audioCacheService;
+    private final AudioMetadataService audioMetadataService;
+    private final AudioPeaksService audioPeaksService;
+    private final StorageReconcileService storageReconcileService;
 
     @GetMapping("/tracks")
     @Operation(summary = "Get all tracks")
@@ -51,6 +67,28 @@ public class AudioController {
         return ResponseEntity.ok(updated);
     }
 
+    @PostMapping("/tracks/durations/backfill")
+    @Operation(summary = "Read durations from file headers for tracks that have none")
+    public ResponseEntity<Map<String, Integer>> backfillDurations() {
+        return ResponseEntity.ok(audioMetadataService.backfillDurations());
+    }
+
+    @PostMapping("/storage/reconcile")
+    @Operation(summary = "Start reconciling stored files with the database in the background")
+    public ResponseEntity<Void> startReconcile() {
+        if (!storageReconcileService.startReconcile()) {
+            throw new ConflictException("Storage reconciliation is already running");
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED).build();
+    }
+
+    @GetMapping("/storage/reconcile")
+    @Operation(summary = "Get the report of the last storage reconciliation")
+    public ResponseEntity<StorageReconcileReportDTO> getReconcileReport() {
+        return ResponseEntity.ok(storageReconcileService.getLastReport()
+                .orElseThrow(() -> new ResourceNotFoundException("Storage reconcile report", "last")));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get audio by ID")
     public ResponseEntity<AudioDTO> getById(@PathVariable UUID id) {
@@ -58,16 +96,26 @@ public class AudioController {
     }
 
     @GetMapping("/{id}/stream")
-    @Operation(summary = "Stream audio file")
-    public ResponseEntity<Resource> streamAudio(@PathVariable UUID id) throws MalformedURLException {
-        AudioDTO audio = audioService.findById(id);
-        Path filePath = audioService.getAudioPath(id);
-        Resource resource = new UrlResource(filePath.toUri());
+    @Operation(summary = "Stream audio file (supports Range requests)")
+    public void streamAudio(@PathVariable UUID id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        AudioCacheService.CachedAudio cached = audioCacheService.get(id);
+        if (cached != null) {
+            audioStreamService.stream(cached.source(), cached.bytes(), request, response);
+            return;
+        }
+        // Taken before the lookup, so a copy resolved before a concurrent delete or rename is not cached after it
+        long generation = audioCacheService.generation();
+        StreamSource source = audioService.findStreamSource(id);
+        audioStreamService.stream(source, request, response);
+        audioCacheService.onMiss(source, generation);
+    }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(audio.contentType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + audio.name() + "\"")
-                .body(resource);
+    @GetMapping("/{id}/peaks")
+    @Operation(summary = "Waveform peaks of a WAV/AIFF track as a binary min/max sidecar (see AudioPeaksService)")
+    public void getPeaks(@PathVariable UUID id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        audioStreamService.stream(audioPeaksService.findPeaksSource(id), request, response);
     }
 
     @PostMapping("/upload")
@@ -81,18 +129,10 @@ public class AudioController {
     }
 
     @PostMapping("/upload/multiple")
-    @Operation(summary = "Upload multiple audio files")
-    public ResponseEntity<List<AudioDTO>> uploadMultiple(
+    @Operation(summary = "Upload multiple audio files concurrently, reporting the outcome per file")
+    public ResponseEntity<List<BulkUploadResultDTO>> uploadMultiple(
             @RequestParam("files") MultipartFile[] files,
             @RequestParam(value = "category", required = false, defaultValue = "sfx") String category) {
-        List<AudioDTO> created = new java.util.ArrayList<>();
-        for (MultipartFile file : files) {
-            String name = file.getOriginalFilename();
-            if (name != null && name.contains(".")) {
-                name = name.substring(0, name.lastIndexOf("."));
-            }
-            created.add(audioService.upload(file, name, category));
-        }
-        return ResponseEntity.ok(created);
+        return ResponseEntity.ok(audioBulkUploadService.uploadAll(files, category));
     }
 }
@@ -0,0 +1,54 @@
+package com.totonium.controller;
+
+import com.totonium.dto.IngestJobDTO;
+import com.totonium.service.AudioIngestService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/audio/ingest")
+@RequiredArgsConstructor
+@Tag(name = "Audio Ingest", description = "Asynchronous audio upload API")
+public class AudioIngestController {
+
+    private final AudioIngestService audioIngestService;
+
+    @PostMapping
+    @Operation(summary = "Upload an audio file for background processing (503 with Retry-After when the queue is full)")
+    public ResponseEntity<IngestJobDTO> submit(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam("name") String name,
+            @RequestParam(value = "category", required = false, defaultValue = "sfx") String category)
+            throws IOException {
+        IngestJobDTO job = audioIngestService.submit(file, name, category);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/audio/ingest/" + job.id()))
+                .body(job);
+    }
+
+    @GetMapping
+    @Operation(summary = "List queued, running and recently finished ingest jobs")
+    public ResponseEntity<List<IngestJobDTO>> getAll() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(audioIngestService.findAll());
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get ingest job progress")
+    public ResponseEntity<IngestJobDTO> status(@PathVariable UUID id) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(audioIngestService.status(id));
+    }
+}
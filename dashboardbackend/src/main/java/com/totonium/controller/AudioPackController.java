@@ -0,0 +1,60 @@
+package com.totonium.controller;
+
+import com.totonium.dto.AudioPackDTO;
+import com.totonium.service.AudioPackService;
+import com.totonium.service.AudioStreamService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/audio/packs")
+@RequiredArgsConstructor
+@Tag(name = "Audio Packs", description = "Single-file bundles of a category's or playlist's tracks")
+public class AudioPackController {
+
+    private final AudioPackService audioPackService;
+    private final AudioStreamService audioStreamService;
+
+    @GetMapping("/category/{category}")
+    @Operation(summary = "Get the offset index of a category's pack")
+    public ResponseEntity<AudioPackDTO> getCategoryPack(@PathVariable String category) {
+        return indexResponse(audioPackService.getCategoryPack(category));
+    }
+
+    @GetMapping("/category/{category}/stream")
+    @Operation(summary = "Download a category's pack (supports Range requests)")
+    public void streamCategoryPack(@PathVariable String category, HttpServletRequest request,
+                                   HttpServletResponse response) throws IOException {
+        audioStreamService.stream(audioPackService.findCategoryPackSource(category), request, response);
+    }
+
+    @GetMapping("/playlist/{id}")
+    @Operation(summary = "Get the offset index of a playlist's pack")
+    public ResponseEntity<AudioPackDTO> getPlaylistPack(@PathVariable UUID id) {
+        return indexResponse(audioPackService.getPlaylistPack(id));
+    }
+
+    @GetMapping("/playlist/{id}/stream")
+    @Operation(summary = "Download a playlist's pack (supports Range requests)")
+    public void streamPlaylistPack(@PathVariable UUID id, HttpServletRequest request,
+                                   HttpServletResponse response) throws IOException {
+        audioStreamService.stream(audioPackService.findPlaylistPackSource(id), request, response);
+    }
+
+    // Same ETag as the pack stream at this version, so a client can pair an index with If-Range on the pack
+    private ResponseEntity<AudioPackDTO> indexResponse(AudioPackDTO pack) {
+        return ResponseEntity.ok()
+                .eTag(pack.id() + "-" + pack.version())
+                .cacheControl(CacheControl.noCache())
+                .body(pack);
+    }
+}
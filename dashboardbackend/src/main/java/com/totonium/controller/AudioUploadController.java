@@ -0,0 +1,76 @@
+package com.totonium.controller;
+
+import com.totonium.dto.AudioDTO;
+import com.totonium.dto.CreateUploadRequest;
+import com.totonium.dto.UploadSessionDTO;
+import com.totonium.service.AudioUploadService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/api/v1/audio/uploads")
+@RequiredArgsConstructor
+@Tag(name = "Audio Uploads", description = "Resumable chunked audio upload API")
+public class AudioUploadController {
+
+    private static final String UPLOAD_OFFSET = "Upload-Offset";
+    private static final String UPLOAD_LENGTH = "Upload-Length";
+
+    private final AudioUploadService audioUploadService;
+
+    @PostMapping
+    @Operation(summary = "Start a resumable upload")
+    public ResponseEntity<UploadSessionDTO> create(@Valid @RequestBody CreateUploadRequest request) throws IOException {
+        UploadSessionDTO session = audioUploadService.create(request);
+        return ResponseEntity.created(URI.create("/api/v1/audio/uploads/" + session.id()))
+                .header(UPLOAD_OFFSET, String.valueOf(session.offset()))
+                .header(UPLOAD_LENGTH, String.valueOf(session.length()))
+                .body(session);
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get upload progress (HEAD returns only the Upload-Offset header)")
+    public ResponseEntity<UploadSessionDTO> status(@PathVariable UUID id) {
+        UploadSessionDTO session = audioUploadService.status(id);
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .header(UPLOAD_OFFSET, String.valueOf(session.offset()))
+                .header(UPLOAD_LENGTH, String.valueOf(session.length()))
+                .body(session);
+    }
+
+    @PatchMapping("/{id}")
+    @Operation(summary = "Append a chunk at Upload-Offset")
+    public ResponseEntity<Void> append(
+            @PathVariable UUID id,
+            @RequestHeader(UPLOAD_OFFSET) long offset,
+            InputStream body) throws IOException {
+        UploadSessionDTO session = audioUploadService.append(id, offset, body);
+        return ResponseEntity.noContent()
+                .header(UPLOAD_OFFSET, String.valueOf(session.offset()))
+                .build();
+    }
+
+    @PostMapping("/{id}/complete")
+    @Operation(summary = "Finish an upload and create the track")
+    public ResponseEntity<AudioDTO> complete(@PathVariable UUID id) throws IOException {
+        return ResponseEntity.ok(audioUploadService.complete(id));
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Abort an upload")
+    public ResponseEntity<Void> abort(@PathVariable UUID id) {
+        audioUploadService.abort(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -3,8 +3,10 @@ package com.totonium.controller;
 import com.totonium.dto.*;
 import com.totonium.entity.User;
 import com.totonium.repository.UserRepository;
+import com.totonium.security.PrincipalCache;
 import com.totonium.service.DeviceService;
 import com.totonium.service.JwtService;
+import io.jsonwebtoken.JwtException;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
@@ -29,6 +31,7 @@ public class AuthController {
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
     private final DeviceService deviceService;
+    private final PrincipalCache principalCache;
 
     @PostMapping("/register")
     @Operation(summary = "Register a new user (initial setup)")
@@ -155,6 +158,11 @@ public class AuthController {
     public ResponseEntity<Void> logout(@RequestHeader("Authorization") String authHeader) {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             String token = authHeader.substring(7);
+            try {
+                principalCache.invalidate(jwtService.validateTokenAndGetUserId(token));
+            } catch (JwtException | IllegalArgumentException e) {
+                // Already unusable, so nothing of it can be cached
+            }
             jwtService.invalidateToken(token);
         }
         return ResponseEntity.ok().build();
@@ -1,6 +1,7 @@
 package com.totonium.controller;
 
 import com.totonium.dto.*;
+import com.totonium.entity.DamageType;
 import com.totonium.service.CombatantService;
 import com.totonium.service.InitiativeTrackerService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -64,11 +65,19 @@ public class CombatantController {
     }
 
     @PostMapping("/{id}/health")
-    @Operation(summary = "Apply damage or healing to a combatant")
+    @Operation(summary = "Apply damage or healing to a combatant, optionally typed for resistances")
     public ResponseEntity<CombatantDTO> updateHealth(
             @PathVariable UUID id,
-            @RequestParam int amount) {
-        return ResponseEntity.ok(combatantService.updateHealth(id, amount));
+            @RequestParam int amount,
+            @RequestParam(required = false) String damageType) {
+        return ResponseEntity.ok(combatantService.updateHealth(id, amount, parseDamageType(damageType)));
+    }
+
+    @PostMapping("/health/batch")
+    @Operation(summary = "Apply the same damage or healing to several combatants")
+    public ResponseEntity<List<CombatantDTO>> updateHealthBatch(@Valid @RequestBody BatchHealthRequest request) {
+        return ResponseEntity.ok(combatantService.updateHealthBatch(
+                request.combatantIds(), request.amount(), parseDamageType(request.damageType())));
     }
 
     @PostMapping("/encounter/{encounterId}/sort")
@@ -78,8 +87,8 @@ public class CombatantController {
     }
 
     @PostMapping("/encounter/{encounterId}/next-turn")
-    @Operation(summary = "Move to next combatant's turn")
-    public ResponseEntity<CombatantDTO> nextTurn(@PathVariable UUID encounterId) {
+    @Operation(summary = "Move to next combatant's turn and get its ability reminders")
+    public ResponseEntity<TurnDTO> nextTurn(@PathVariable UUID encounterId) {
         return ResponseEntity.ok(initiativeTrackerService.nextTurn(encounterId));
     }
 
@@ -89,4 +98,8 @@ public class CombatantController {
         initiativeTrackerService.clearEncounter(encounterId);
         return ResponseEntity.noContent().build();
     }
+
+    private DamageType parseDamageType(String damageType) {
+        return damageType != null && !damageType.isBlank() ? DamageType.fromString(damageType) : null;
+    }
 }
@@ -0,0 +1,50 @@
+package com.totonium.controller;
+
+import com.totonium.dto.ClockDTO;
+import com.totonium.dto.CueDTO;
+import com.totonium.dto.CueRequest;
+import com.totonium.service.CueService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/v1/cues")
+@RequiredArgsConstructor
+@Tag(name = "Cues", description = "Synchronized SFX and music cues for player devices")
+public class CueController {
+
+    private final CueService cueService;
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Receive the cues triggered on this account as server-sent events")
+    public SseEmitter stream() {
+        return cueService.subscribe(currentOwner());
+    }
+
+    @PostMapping
+    @Operation(summary = "Broadcast a cue to every device listening on this account")
+    public ResponseEntity<CueDTO> publish(@Valid @RequestBody CueRequest request) {
+        return ResponseEntity.accepted().body(cueService.publish(currentOwner(), request));
+    }
+
+    @GetMapping("/clock")
+    @Operation(summary = "Clock sync exchange: echoes the client time with the server's receive and send times")
+    public ResponseEntity<ClockDTO> clock(@RequestParam("t0") long clientTime) {
+        long receivedAt = System.currentTimeMillis();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(new ClockDTO(clientTime, receivedAt, System.currentTimeMillis()));
+    }
+
+    private String currentOwner() {
+        return SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+}
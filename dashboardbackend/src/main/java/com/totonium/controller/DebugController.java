@@ -1,5 +1,6 @@
 package com.totonium.controller;
 
+import com.totonium.service.AudioCacheService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
@@ -38,6 +39,9 @@ public class DebugController {
     @Autowired(required = false)
     private BuildProperties buildProperties;
 
+    @Autowired
+    private AudioCacheService audioCacheService;
+
     @GetMapping("/health")
     @Operation(summary = "Health check endpoint")
     public ResponseEntity<Map<String, Object>> health() {
@@ -78,6 +82,12 @@ public class DebugController {
         return ResponseEntity.ok(health);
     }
 
+    @GetMapping("/audio-cache")
+    @Operation(summary = "Get sound effect cache hit/miss statistics")
+    public ResponseEntity<AudioCacheService.Stats> audioCache() {
+        return ResponseEntity.ok(audioCacheService.stats());
+    }
+
     @GetMapping("/info")
     @Operation(summary = "Get application information")
     public ResponseEntity<Map<String, Object>> info() {
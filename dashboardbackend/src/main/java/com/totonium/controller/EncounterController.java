@@ -1,16 +1,23 @@
 package com.totonium.controller;
 
+import com.totonium.dto.ArchivedEncounterDTO;
+import com.totonium.dto.EncounterAggregateDTO;
 import com.totonium.dto.EncounterDTO;
+import com.totonium.dto.EncounterSummaryPageDTO;
+import com.totonium.service.EncounterArchiveService;
 import com.totonium.service.EncounterService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -20,6 +27,7 @@ import java.util.UUID;
 public class EncounterController {
 
     private final EncounterService encounterService;
+    private final EncounterArchiveService encounterArchiveService;
 
     @GetMapping
     @Operation(summary = "Get all encounters")
@@ -27,12 +35,47 @@ public class EncounterController {
         return ResponseEntity.ok(encounterService.findAll());
     }
 
+    @GetMapping("/summaries")
+    @Operation(summary = "Get encounter summaries with combatant counts and party HP, newest first")
+    public ResponseEntity<EncounterSummaryPageDTO> getSummaries(
+            @RequestParam(required = false) Boolean isCompleted,
+            @RequestParam(required = false) UUID campaignId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime afterCreatedAt,
+            @RequestParam(required = false) UUID afterId,
+            @RequestParam(defaultValue = "25") int limit) {
+        return ResponseEntity.ok(encounterService.findSummaries(isCompleted, campaignId, afterCreatedAt, afterId, limit));
+    }
+
+    @GetMapping("/archived")
+    @Operation(summary = "Get archived encounters")
+    public ResponseEntity<List<ArchivedEncounterDTO>> getArchived() {
+        return ResponseEntity.ok(encounterArchiveService.findAll());
+    }
+
+    @PostMapping("/archive")
+    @Operation(summary = "Archive all completed encounters older than the configured age")
+    public ResponseEntity<Map<String, Integer>> archiveCompleted() {
+        return ResponseEntity.ok(Map.of("archived", encounterArchiveService.archiveCompletedEncounters()));
+    }
+
+    @PostMapping("/{id}/archive")
+    @Operation(summary = "Archive a completed encounter now")
+    public ResponseEntity<ArchivedEncounterDTO> archive(@PathVariable UUID id) {
+        return ResponseEntity.ok(encounterArchiveService.archive(id));
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get encounter by ID")
     public ResponseEntity<EncounterDTO> getById(@PathVariable UUID id) {
         return ResponseEntity.ok(encounterService.findById(id));
     }
 
+    @GetMapping("/{id}/aggregate")
+    @Operation(summary = "Get encounter with its ordered combatants and referenced statblocks")
+    public ResponseEntity<EncounterAggregateDTO> getAggregate(@PathVariable UUID id) {
+        return ResponseEntity.ok(encounterService.findAggregateById(id));
+    }
+
     @PostMapping
     @Operation(summary = "Create a new encounter")
     public ResponseEntity<EncounterDTO> create(@Valid @RequestBody EncounterDTO request) {
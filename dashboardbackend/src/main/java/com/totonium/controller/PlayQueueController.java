@@ -0,0 +1,98 @@
+package com.totonium.controller;
+
+import com.totonium.dto.CreatePlayQueueRequest;
+import com.totonium.dto.PlayQueueDTO;
+import com.totonium.dto.PlayQueueModeRequest;
+import com.totonium.service.PlayQueueService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.jspecify.annotations.Nullable;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Play queue responses list the upcoming tracks both in the body, with the byte range to prefetch, and as
+ * {@code Link: rel=preload} headers for clients that let the browser warm its cache.
+ */
+@RestController
+@RequestMapping("/api/v1/queues")
+@RequiredArgsConstructor
+@Tag(name = "Play Queues", description = "Server-side playlist queues with prefetch hints")
+public class PlayQueueController {
+
+    private final PlayQueueService playQueueService;
+
+    @PostMapping
+    @Operation(summary = "Start a play queue over a playlist")
+    public ResponseEntity<PlayQueueDTO> create(@Valid @RequestBody CreatePlayQueueRequest request,
+                                               @RequestParam(required = false) @Nullable Integer lookahead) {
+        return respond(playQueueService.create(currentOwner(), request, lookahead));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get the current track and the next ones")
+    public ResponseEntity<PlayQueueDTO> get(@PathVariable UUID id,
+                                            @RequestParam(required = false) @Nullable Integer lookahead) {
+        return respond(playQueueService.get(currentOwner(), id, lookahead));
+    }
+
+    @PostMapping("/{id}/next")
+    @Operation(summary = "Advance to the next track; pass ended=true when the current one finished playing")
+    public ResponseEntity<PlayQueueDTO> next(@PathVariable UUID id,
+                                             @RequestParam(defaultValue = "false") boolean ended,
+                                             @RequestParam(required = false) @Nullable Integer lookahead) {
+        return respond(playQueueService.next(currentOwner(), id, ended, lookahead));
+    }
+
+    @PostMapping("/{id}/previous")
+    @Operation(summary = "Go back to the previous track")
+    public ResponseEntity<PlayQueueDTO> previous(@PathVariable UUID id,
+                                                 @RequestParam(required = false) @Nullable Integer lookahead) {
+        return respond(playQueueService.previous(currentOwner(), id, lookahead));
+    }
+
+    @PostMapping("/{id}/jump")
+    @Operation(summary = "Jump to a position in the play order")
+    public ResponseEntity<PlayQueueDTO> jump(@PathVariable UUID id, @RequestParam int position,
+                                             @RequestParam(required = false) @Nullable Integer lookahead) {
+        return respond(playQueueService.jump(currentOwner(), id, position, lookahead));
+    }
+
+    @PutMapping("/{id}/mode")
+    @Operation(summary = "Change shuffle, seed and repeat mode")
+    public ResponseEntity<PlayQueueDTO> changeMode(@PathVariable UUID id,
+                                                   @Valid @RequestBody PlayQueueModeRequest request,
+                                                   @RequestParam(required = false) @Nullable Integer lookahead) {
+        return respond(playQueueService.changeMode(currentOwner(), id, request, lookahead));
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Discard a play queue")
+    public ResponseEntity<Void> delete(@PathVariable UUID id) {
+        playQueueService.delete(currentOwner(), id);
+        return ResponseEntity.noContent().build();
+    }
+
+    private ResponseEntity<PlayQueueDTO> respond(PlayQueueDTO queue) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().cacheControl(CacheControl.noStore());
+        if (!queue.upcoming().isEmpty()) {
+            response.header(HttpHeaders.LINK, queue.upcoming().stream()
+                    .map(entry -> "<" + entry.streamUrl() + ">; rel=preload; as=audio; type=\"" + entry.contentType() + "\"")
+                    .distinct()
+                    .collect(Collectors.joining(", ")));
+        }
+        return response.body(queue);
+    }
+
+    private String currentOwner() {
+        return SecurityContextHolder.getContext().getAuthentication().getName();
+    }
+}
@@ -1,14 +1,20 @@
 package com.totonium.controller;
 
+import com.totonium.dto.AddPlaylistTrackRequest;
+import com.totonium.dto.MovePlaylistTrackRequest;
 import com.totonium.dto.PlaylistDTO;
+import com.totonium.service.PlaylistBundleService;
 import com.totonium.service.PlaylistService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.UUID;
 
@@ -19,6 +25,7 @@ import java.util.UUID;
 public class PlaylistController {
 
     private final PlaylistService playlistService;
+    private final PlaylistBundleService playlistBundleService;
 
     @GetMapping
     @Operation(summary = "Get all playlists")
@@ -32,6 +39,14 @@ public class PlaylistController {
         return ResponseEntity.ok(playlistService.findById(id));
     }
 
+    @GetMapping("/{id}/bundle")
+    @Operation(summary = "Download a playlist for offline use as a multipart bundle with a manifest; "
+            + "tracks whose ETags are sent in If-None-Match are left out")
+    public void getBundle(@PathVariable UUID id, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        playlistBundleService.write(id, request, response);
+    }
+
     @PostMapping
     @Operation(summary = "Create a new playlist")
     public ResponseEntity<PlaylistDTO> create(@Valid @RequestBody PlaylistDTO dto) {
@@ -44,6 +59,26 @@ public class PlaylistController {
         return ResponseEntity.ok(playlistService.update(id, dto));
     }
 
+    @PostMapping("/{id}/tracks")
+    @Operation(summary = "Append a track, or insert it at an index")
+    public ResponseEntity<PlaylistDTO> addTrack(@PathVariable UUID id,
+                                                @Valid @RequestBody AddPlaylistTrackRequest request) {
+        return ResponseEntity.ok(playlistService.addTrack(id, request.audioId(), request.index()));
+    }
+
+    @PostMapping("/{id}/tracks/move")
+    @Operation(summary = "Move the track at one index to another")
+    public ResponseEntity<PlaylistDTO> moveTrack(@PathVariable UUID id,
+                                                 @Valid @RequestBody MovePlaylistTrackRequest request) {
+        return ResponseEntity.ok(playlistService.moveTrack(id, request.from(), request.to()));
+    }
+
+    @DeleteMapping("/{id}/tracks/{index}")
+    @Operation(summary = "Remove the track at an index")
+    public ResponseEntity<PlaylistDTO> removeTrack(@PathVariable UUID id, @PathVariable int index) {
+        return ResponseEntity.ok(playlistService.removeTrack(id, index));
+    }
+
     @DeleteMapping("/{id}")
     @Operation(summary = "Delete a playlist")
     public ResponseEntity<Void> delete(@PathVariable UUID id) {
@@ -0,0 +1,16 @@
+package com.totonium.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import org.jspecify.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Adds a track before the entry at {@code index}, or at the end when no index is given.
+ */
+public record AddPlaylistTrackRequest(
+        @NotNull UUID audioId,
+        @Min(0) @Nullable Integer index
+) {
+}
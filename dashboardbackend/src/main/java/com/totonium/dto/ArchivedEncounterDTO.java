@@ -0,0 +1,18 @@
+package com.totonium.dto;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record ArchivedEncounterDTO(
+        UUID id,
+        String name,
+        @Nullable UUID campaignId,
+        @Nullable LocalDateTime endedAt,
+        @Nullable LocalDateTime archivedAt,
+        Integer combatantCount,
+        Long rawSize,
+        Long compressedSize
+) {
+}
@@ -9,8 +9,10 @@ public record AudioDTO(
         String fileName,
         String contentType,
         Long fileSize,
+        String contentHash,
         Long durationSeconds,
         String category,
+        LocalDateTime missingAt,
         LocalDateTime createdAt,
         LocalDateTime updatedAt
 ) {
@@ -0,0 +1,26 @@
+package com.totonium.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Offset index of a pack file: every track of a category or playlist concatenated into one download.
+ * A track's bytes are {@code [offset, offset + length)} of the pack at this version.
+ */
+public record AudioPackDTO(
+        UUID id,
+        String name,
+        long version,
+        long length,
+        List<Entry> entries
+) {
+    public record Entry(
+            UUID id,
+            String name,
+            String contentType,
+            Long durationSeconds,
+            long offset,
+            long length
+    ) {
+    }
+}
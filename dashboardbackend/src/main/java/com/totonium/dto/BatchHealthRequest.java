@@ -0,0 +1,20 @@
+package com.totonium.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import org.jspecify.annotations.Nullable;
+
+import java.util.List;
+import java.util.UUID;
+
+public record BatchHealthRequest(
+        @NotEmpty(message = "At least one combatant is required")
+        List<UUID> combatantIds,
+
+        @NotNull(message = "Amount is required")
+        Integer amount,
+
+        @Nullable
+        String damageType
+) {
+}
@@ -0,0 +1,18 @@
+package com.totonium.dto;
+
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Outcome of one file in a multi-file upload.
+ */
+public record BulkUploadResultDTO(
+        @Nullable String fileName,
+        Status status,
+        @Nullable AudioDTO audio,
+        @Nullable String error
+) {
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+}
@@ -0,0 +1,15 @@
+package com.totonium.dto;
+
+/**
+ * One NTP-style clock exchange, in epoch milliseconds. With {@code t3} the client's time when the reply arrived,
+ * the server is ahead by {@code ((receivedAt - clientTime) + (sentAt - t3)) / 2}; the sample with the shortest
+ * round trip is the most accurate.
+ *
+ * @param clientTime the client's send time, echoed back
+ */
+public record ClockDTO(
+        long clientTime,
+        long receivedAt,
+        long sentAt
+) {
+}
@@ -8,7 +8,7 @@ import java.util.UUID;
 public record CombatantDTO(
     UUID id,
     String name,
-    @Nullable String statblockId,
+    @Nullable UUID statblockId,
     Integer initiative,
     Integer currentHP,
     Integer maxHP,
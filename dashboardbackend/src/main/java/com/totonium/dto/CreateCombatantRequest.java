@@ -11,7 +11,7 @@ public record CreateCombatantRequest(
     String name,
 
     @Nullable
-    String statblockId,
+    UUID statblockId,
 
     @NotNull(message = "Initiative is required")
     @Min(value = -10, message = "Initiative must be at least -10")
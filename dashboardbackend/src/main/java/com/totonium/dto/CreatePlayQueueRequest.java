@@ -0,0 +1,20 @@
+package com.totonium.dto;
+
+import com.totonium.dto.PlayQueueDTO.Repeat;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import org.jspecify.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Starts a play queue over a playlist. Without a seed a random one is picked and returned.
+ */
+public record CreatePlayQueueRequest(
+        @NotNull UUID playlistId,
+        boolean shuffle,
+        @Nullable Long seed,
+        @Nullable Repeat repeat,
+        @Min(0) @Nullable Integer startIndex
+) {
+}
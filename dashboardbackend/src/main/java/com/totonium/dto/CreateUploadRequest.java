@@ -0,0 +1,22 @@
+package com.totonium.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import org.jspecify.annotations.Nullable;
+
+public record CreateUploadRequest(
+        @NotBlank(message = "Name is required")
+        String name,
+        @NotNull(message = "Length is required")
+        @Positive(message = "Length must be positive")
+        Long length,
+        @Nullable String fileName,
+        @Nullable String contentType,
+        @Nullable String category,
+        @Nullable
+        @Pattern(regexp = "[0-9a-f]{64}", message = "Content hash must be a lowercase hex SHA-256 digest")
+        String contentHash
+) {
+}
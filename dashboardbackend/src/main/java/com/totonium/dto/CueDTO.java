@@ -0,0 +1,41 @@
+package com.totonium.dto;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * A broadcast cue. Times are server epoch milliseconds; devices translate {@code startAt} with the offset
+ * measured against {@code /api/v1/cues/clock} so they all start together.
+ *
+ * @param listeners devices the cue was sent to
+ */
+public record CueDTO(
+        long sequence,
+        Action action,
+        @Nullable UUID audioId,
+        @Nullable UUID playlistId,
+        @Nullable Double volume,
+        boolean loop,
+        long serverTime,
+        long startAt,
+        int listeners
+) {
+    public enum Action {
+        PLAY_AUDIO,
+        STOP_AUDIO,
+        PLAY_PLAYLIST,
+        STOP_PLAYLIST,
+        NEXT_TRACK,
+        PREVIOUS_TRACK,
+        STOP_ALL;
+
+        public boolean needsAudio() {
+            return this == PLAY_AUDIO || this == STOP_AUDIO;
+        }
+
+        public boolean needsPlaylist() {
+            return this == PLAY_PLAYLIST || this == STOP_PLAYLIST || this == NEXT_TRACK || this == PREVIOUS_TRACK;
+        }
+    }
+}
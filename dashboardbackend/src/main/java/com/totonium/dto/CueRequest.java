@@ -0,0 +1,26 @@
+package com.totonium.dto;
+
+import com.totonium.dto.CueDTO.Action;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import org.jspecify.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * A cue the DM triggers for every device listening on their account.
+ *
+ * @param leadMs how far ahead of now devices should start, overriding {@code app.cues.lead}
+ */
+public record CueRequest(
+        @NotNull Action action,
+        @Nullable UUID audioId,
+        @Nullable UUID playlistId,
+        @DecimalMin("0.0") @DecimalMax("1.0") @Nullable Double volume,
+        @Nullable Boolean loop,
+        @Min(0) @Max(10000) @Nullable Integer leadMs
+) {
+}
@@ -0,0 +1,14 @@
+package com.totonium.dto;
+
+import java.util.List;
+
+/**
+ * Everything the combat screen needs for its first paint: the encounter, its
+ * combatants in combat order and the statblocks they reference.
+ */
+public record EncounterAggregateDTO(
+        EncounterDTO encounter,
+        List<CombatantDTO> combatants,
+        List<StatblockSummaryDTO> statblocks
+) {
+}
@@ -0,0 +1,41 @@
+package com.totonium.dto;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Encounter card data with combatant aggregates computed by a single GROUP BY query.
+ * Party HP only counts player characters; partyHpPercent is null when there are none.
+ */
+public record EncounterSummaryDTO(
+        UUID id,
+        String name,
+        @Nullable String description,
+        @Nullable UUID campaignId,
+        @Nullable Boolean isCompleted,
+        @Nullable Integer currentRound,
+        @Nullable LocalDateTime startedAt,
+        @Nullable LocalDateTime endedAt,
+        @Nullable LocalDateTime createdAt,
+        long combatantCount,
+        long downCount,
+        long partyCurrentHP,
+        long partyMaxHP,
+        @Nullable Integer partyHpPercent
+) {
+    public EncounterSummaryDTO(UUID id, String name, @Nullable String description, @Nullable UUID campaignId,
+                               @Nullable Boolean isCompleted, @Nullable Integer currentRound,
+                               @Nullable LocalDateTime startedAt, @Nullable LocalDateTime endedAt,
+                               @Nullable LocalDateTime createdAt, @Nullable Long combatantCount,
+                               @Nullable Long downCount, @Nullable Long partyCurrentHP, @Nullable Long partyMaxHP) {
+        this(id, name, description, campaignId, isCompleted, currentRound, startedAt, endedAt, createdAt,
+                valueOf(combatantCount), valueOf(downCount), valueOf(partyCurrentHP), valueOf(partyMaxHP),
+                valueOf(partyMaxHP) > 0 ? (int) (valueOf(partyCurrentHP) * 100 / valueOf(partyMaxHP)) : null);
+    }
+
+    private static long valueOf(@Nullable Long value) {
+        return value != null ? value : 0L;
+    }
+}
@@ -0,0 +1,18 @@
+package com.totonium.dto;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One keyset page of encounter summaries, newest first. Pass nextCreatedAt/nextId
+ * back as afterCreatedAt/afterId to fetch the following page; both are null on the last page.
+ */
+public record EncounterSummaryPageDTO(
+        List<EncounterSummaryDTO> items,
+        @Nullable LocalDateTime nextCreatedAt,
+        @Nullable UUID nextId
+) {
+}
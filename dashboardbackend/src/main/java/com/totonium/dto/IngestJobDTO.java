@@ -0,0 +1,38 @@
+package com.totonium.dto;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * State of an asynchronous audio ingest.
+ *
+ * @param queuePosition jobs ahead of this one while it is queued, otherwise 0
+ * @param audio         the created track once the job is done
+ */
+public record IngestJobDTO(
+        UUID id,
+        String name,
+        String category,
+        long size,
+        Status status,
+        int queuePosition,
+        @Nullable AudioDTO audio,
+        @Nullable String error,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt
+) {
+    public enum Status {
+        QUEUED,
+        HASHING,
+        STORING,
+        PROBING,
+        DONE,
+        FAILED;
+
+        public boolean isFinished() {
+            return this == DONE || this == FAILED;
+        }
+    }
+}
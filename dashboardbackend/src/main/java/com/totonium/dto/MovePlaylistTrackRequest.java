@@ -0,0 +1,9 @@
+package com.totonium.dto;
+
+import jakarta.validation.constraints.Min;
+
+public record MovePlaylistTrackRequest(
+        @Min(0) int from,
+        @Min(0) int to
+) {
+}
@@ -0,0 +1,33 @@
+package com.totonium.dto;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A server-side play queue over a playlist.
+ *
+ * @param seed     seed of the shuffle; the same seed over the same playlist always gives the same order
+ * @param position index of the current track in the play order
+ * @param length   number of tracks in the play order
+ * @param current  the track to play, or null once a queue without repeat has run out
+ * @param upcoming the tracks that follow, for clients to prefetch; with {@link Repeat#ONE}, the current track again
+ */
+public record PlayQueueDTO(
+        UUID id,
+        UUID playlistId,
+        boolean shuffle,
+        long seed,
+        Repeat repeat,
+        int position,
+        int length,
+        @Nullable PlayQueueEntryDTO current,
+        List<PlayQueueEntryDTO> upcoming
+) {
+    public enum Repeat {
+        OFF,
+        ONE,
+        ALL
+    }
+}
@@ -0,0 +1,25 @@
+package com.totonium.dto;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * A queued track with what a client needs to warm its buffer before the track is due.
+ *
+ * @param position     index in the play order; positions past the end belong to the next repeat cycle
+ * @param preloadRange Range header covering roughly the first seconds of the track, to fetch with
+ *                     {@code If-Range: etag}
+ */
+public record PlayQueueEntryDTO(
+        int position,
+        UUID audioId,
+        String name,
+        String contentType,
+        @Nullable Long durationSeconds,
+        long size,
+        String etag,
+        String streamUrl,
+        String preloadRange
+) {
+}
@@ -0,0 +1,15 @@
+package com.totonium.dto;
+
+import com.totonium.dto.PlayQueueDTO.Repeat;
+import jakarta.validation.constraints.NotNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Changes how a play queue orders and repeats its tracks; the current track keeps playing.
+ */
+public record PlayQueueModeRequest(
+        boolean shuffle,
+        @Nullable Long seed,
+        @NotNull Repeat repeat
+) {
+}
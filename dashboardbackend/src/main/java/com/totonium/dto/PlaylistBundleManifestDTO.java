@@ -0,0 +1,30 @@
+package com.totonium.dto;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * First part of a playlist bundle. Each track's bytes are in the part named after its ETag (without quotes),
+ * unless {@code included} is false because the client already holds that content.
+ */
+public record PlaylistBundleManifestDTO(
+        UUID playlistId,
+        String etag,
+        List<Track> tracks
+) {
+    /**
+     * @param sha256 hex SHA-256 of the track's bytes as sent, or null for tracks stored before hashes were recorded
+     */
+    public record Track(
+            UUID id,
+            String name,
+            String contentType,
+            long length,
+            @Nullable String sha256,
+            String etag,
+            boolean included
+    ) {
+    }
+}
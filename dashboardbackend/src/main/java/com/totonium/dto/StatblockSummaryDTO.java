@@ -0,0 +1,35 @@
+package com.totonium.dto;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Combat-relevant subset of a statblock, embedded in encounter aggregates so the
+ * combat screen does not have to fetch every referenced statblock separately.
+ */
+public record StatblockSummaryDTO(
+        UUID id,
+        String name,
+        @Nullable String size,
+        @Nullable String type,
+        @Nullable String alignment,
+        @Nullable Integer armorClass,
+        @Nullable Integer hitPoints,
+        @Nullable String hitDice,
+        @Nullable Map<String, Object> speed,
+        @Nullable Map<String, Integer> scores,
+        @Nullable List<String> damageImmunities,
+        @Nullable List<String> damageResistances,
+        @Nullable List<String> damageVulnerabilities,
+        @Nullable List<String> conditionImmunities,
+        @Nullable Integer passivePerception,
+        @Nullable Integer challengeRating,
+        @Nullable List<Map<String, String>> reactions,
+        @Nullable Map<String, Object> legendaryActions,
+        @Nullable Map<String, Object> lairActions,
+        @Nullable Map<String, String> mythicTrait
+) {
+}
@@ -0,0 +1,25 @@
+package com.totonium.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Outcome of one storage reconciliation run.
+ *
+ * @param quarantinedBytes size of the files moved to quarantine this run
+ * @param reclaimedBytes   size of the quarantined files deleted this run after their retention period
+ */
+public record StorageReconcileReportDTO(
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        long filesScanned,
+        long blobsScanned,
+        long orphansQuarantined,
+        long quarantinedBytes,
+        long missingFiles,
+        long tracksFlagged,
+        long tracksRestored,
+        long refCountsCorrected,
+        long reclaimedBytes,
+        long errors
+) {
+}
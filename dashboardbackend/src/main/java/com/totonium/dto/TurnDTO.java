@@ -0,0 +1,9 @@
+package com.totonium.dto;
+
+import java.util.List;
+
+public record TurnDTO(
+        CombatantDTO combatant,
+        List<TurnReminderDTO> reminders
+) {
+}
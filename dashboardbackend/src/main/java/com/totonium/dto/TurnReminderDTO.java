@@ -0,0 +1,24 @@
+package com.totonium.dto;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Something the DM should be reminded of when a turn starts.
+ * The combatant is the creature whose ability the reminder is about.
+ */
+public record TurnReminderDTO(
+        Type type,
+        UUID combatantId,
+        String combatantName,
+        String title,
+        @Nullable String detail
+) {
+    public enum Type {
+        LAIR_ACTION,
+        LEGENDARY_RESET,
+        RECHARGE,
+        MYTHIC_TRAIT
+    }
+}
@@ -2,9 +2,11 @@ package com.totonium.dto;
 
 import org.jspecify.annotations.Nullable;
 
+import java.util.UUID;
+
 public record UpdateCombatantRequest(
     @Nullable String name,
-    @Nullable String statblockId,
+    @Nullable UUID statblockId,
     @Nullable Integer initiative,
     @Nullable Integer currentHP,
     @Nullable Integer maxHP,
@@ -0,0 +1,13 @@
+package com.totonium.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record UploadSessionDTO(
+        UUID id,
+        String name,
+        long offset,
+        long length,
+        LocalDateTime expiresAt
+) {
+}
@@ -34,12 +34,19 @@ public class Audio {
     @Column(name = "file_size", nullable = false)
     private Long fileSize;
 
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
     @Column(name = "duration_seconds")
     private Long durationSeconds;
 
     @Column(name = "category", nullable = false, columnDefinition = "VARCHAR(20) DEFAULT 'sfx'")
     private String category;
 
+    // Set by the storage reconciler while the file is missing from the store
+    @Column(name = "missing_at")
+    private LocalDateTime missingAt;
+
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
@@ -0,0 +1,52 @@
+package com.totonium.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stored audio file, keyed by the SHA-256 of its bytes. Every Audio row with the same content hash
+ * shares the blob; the file is removed once the last reference is deleted.
+ * <p>
+ * The upload hash is the SHA-256 of the file as it was uploaded, which differs from the content hash when ingest
+ * rewrote it for playback. It lets a re-upload of the original find the blob. Blobs stored before it was recorded
+ * have none until {@link com.totonium.service.AudioBlobService} has verified their content hash.
+ */
+@Entity
+@Table(name = "audio_blobs", indexes = {
+        @Index(name = "idx_audio_blobs_upload_hash", columnList = "upload_hash")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AudioBlob {
+
+    @Id
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "upload_hash", length = 64)
+    @Nullable
+    private String uploadHash;
+
+    @Column(name = "file_path", nullable = false)
+    private String filePath;
+
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
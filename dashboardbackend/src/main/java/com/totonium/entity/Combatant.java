@@ -2,13 +2,17 @@ package com.totonium.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 import org.jspecify.annotations.Nullable;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "combatants")
+@Table(name = "combatants", indexes = {
+        @Index(name = "idx_combatants_encounter_id", columnList = "encounter_id, combat_order")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -23,8 +27,11 @@ public class Combatant {
     @Column(nullable = false)
     private String name;
 
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "statblock_id")
+    @OnDelete(action = OnDeleteAction.SET_NULL)
     @Nullable
-    private String statblockId;
+    private Statblock statblock;
 
     @Column(nullable = false)
     private Integer initiative;
@@ -50,6 +57,18 @@ public class Combatant {
     @Nullable
     private String alignment;
 
+    @Column(name = "damage_immunity_mask")
+    @Nullable
+    private Integer damageImmunityMask;
+
+    @Column(name = "damage_resistance_mask")
+    @Nullable
+    private Integer damageResistanceMask;
+
+    @Column(name = "damage_vulnerability_mask")
+    @Nullable
+    private Integer damageVulnerabilityMask;
+
     @Column(name = "encounter_id")
     @Nullable
     private UUID encounterId;
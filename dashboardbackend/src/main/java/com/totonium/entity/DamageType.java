@@ -0,0 +1,117 @@
+package com.totonium.entity;
+
+import org.jspecify.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * The thirteen 5e damage types. Sets of damage types are stored on combatants as int
+ * bitmasks (bit = ordinal) so adjusting damage is a couple of bit tests.
+ */
+public enum DamageType {
+    ACID,
+    BLUDGEONING,
+    COLD,
+    FIRE,
+    FORCE,
+    LIGHTNING,
+    NECROTIC,
+    PIERCING,
+    POISON,
+    PSYCHIC,
+    RADIANT,
+    SLASHING,
+    THUNDER;
+
+    private static final DamageType[] VALUES = values();
+    private static final Map<String, DamageType> BY_NAME = Arrays.stream(VALUES)
+            .collect(Collectors.toUnmodifiableMap(type -> type.name().toLowerCase(Locale.ROOT), type -> type));
+    // Words that open a condition on the damage types before them
+    private static final Set<String> QUALIFIERS = Set.of("from", "that", "except", "unless", "while", "when", "if");
+    private static final Pattern NON_LETTERS = Pattern.compile("[^a-z]+");
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    public static DamageType fromString(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown damage type: " + value);
+        }
+    }
+
+    /**
+     * Extracts the unconditional damage types from statblock entries such as "fire" or
+     * "cold; bludgeoning, piercing, and slashing from nonmagical attacks". Each ";"-separated
+     * clause is matched word by word; clauses with a qualifier ("from nonmagical attacks",
+     * "that aren't silvered", ...) only apply in some cases, so they are skipped and left to the DM.
+     */
+    public static EnumSet<DamageType> parseAll(@Nullable List<String> entries) {
+        EnumSet<DamageType> types = EnumSet.noneOf(DamageType.class);
+        if (entries == null) {
+            return types;
+        }
+        for (String entry : entries) {
+            if (entry == null) {
+                continue;
+            }
+            for (String clause : entry.toLowerCase(Locale.ROOT).split(";")) {
+                String[] words = NON_LETTERS.split(clause.trim());
+                if (Arrays.stream(words).anyMatch(QUALIFIERS::contains)) {
+                    continue;
+                }
+                for (String word : words) {
+                    DamageType type = BY_NAME.get(word);
+                    if (type != null) {
+                        types.add(type);
+                    }
+                }
+            }
+        }
+        return types;
+    }
+
+    public static int toMask(Set<DamageType> types) {
+        int mask = 0;
+        for (DamageType type : types) {
+            mask |= type.bit();
+        }
+        return mask;
+    }
+
+    public static EnumSet<DamageType> fromMask(int mask) {
+        EnumSet<DamageType> types = EnumSet.noneOf(DamageType.class);
+        for (DamageType type : VALUES) {
+            if ((mask & type.bit()) != 0) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+
+    /**
+     * Applies immunity, then resistance (halved, rounded down), then vulnerability (doubled).
+     */
+    public int adjust(int damage, int immunityMask, int resistanceMask, int vulnerabilityMask) {
+        int bit = bit();
+        if ((immunityMask & bit) != 0) {
+            return 0;
+        }
+        if ((resistanceMask & bit) != 0) {
+            damage /= 2;
+        }
+        if ((vulnerabilityMask & bit) != 0) {
+            damage *= 2;
+        }
+        return damage;
+    }
+}
@@ -8,7 +8,10 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "encounters")
+@Table(name = "encounters", indexes = {
+        @Index(name = "idx_encounters_created_at_id", columnList = "created_at DESC, id DESC"),
+        @Index(name = "idx_encounters_campaign_id", columnList = "campaign_id")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -59,6 +62,11 @@ public class Encounter {
     @Nullable
     private LocalDateTime updatedAt;
 
+    // Set when restored from the archive, so it is not archived again until it has gone unused as long again
+    @Column(name = "rehydrated_at")
+    @Nullable
+    private LocalDateTime rehydratedAt;
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -0,0 +1,59 @@
+package com.totonium.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.jspecify.annotations.Nullable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Cold-storage copy of a completed encounter and its combatants. The id is the original
+ * encounter id; the payload is a gzip-compressed JSON snapshot.
+ */
+@Entity
+@Table(name = "encounter_archives", indexes = {
+        @Index(name = "idx_encounter_archives_campaign_id", columnList = "campaign_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EncounterArchive {
+
+    @Id
+    private UUID id;
+
+    @Column(nullable = false)
+    private String name;
+
+    @Column(name = "campaign_id")
+    @Nullable
+    private UUID campaignId;
+
+    @Column(name = "ended_at")
+    @Nullable
+    private LocalDateTime endedAt;
+
+    @Column(name = "combatant_count", nullable = false)
+    private Integer combatantCount;
+
+    @Column(name = "raw_size", nullable = false)
+    private Long rawSize;
+
+    @Column(name = "compressed_size", nullable = false)
+    private Long compressedSize;
+
+    @Column(name = "payload", nullable = false, length = 64 * 1024 * 1024)
+    private byte[] payload;
+
+    @Column(name = "archived_at")
+    @Nullable
+    private LocalDateTime archivedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        archivedAt = LocalDateTime.now();
+    }
+}
@@ -25,8 +25,9 @@ public class Playlist {
     @Column(columnDefinition = "TEXT")
     private String description;
 
+    // JSON array of track ids from before playlist_tracks; moved into that table at startup, then cleared
     @Column(name = "track_ids", columnDefinition = "TEXT")
-    private String trackIds; // Stored as JSON array
+    private String legacyTrackIds;
 
     @Column(name = "created_at")
     private LocalDateTime createdAt;
@@ -0,0 +1,49 @@
+package com.totonium.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+
+import java.util.UUID;
+
+/**
+ * One entry of a playlist. Entries are ordered by {@code position}, which is sparse so an entry can be inserted or
+ * moved by giving it a value between its new neighbours without renumbering the rest.
+ */
+@Entity
+@Table(name = "playlist_tracks", indexes = {
+        @Index(name = "idx_playlist_tracks_playlist_position", columnList = "playlist_id, position"),
+        @Index(name = "idx_playlist_tracks_audio_id", columnList = "audio_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PlaylistTrack {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "playlist_id", nullable = false)
+    private UUID playlistId;
+
+    @Column(name = "audio_id", nullable = false)
+    private UUID audioId;
+
+    @Column(nullable = false)
+    private Long position;
+
+    // Mapped only for the foreign keys; entries are read and written through the id columns
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "playlist_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Playlist playlist;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "audio_id", insertable = false, updatable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    private Audio audio;
+}
@@ -0,0 +1,11 @@
+package com.totonium.exception;
+
+/**
+ * Exception thrown when a request conflicts with the current state of a resource.
+ */
+public class ConflictException extends RuntimeException {
+
+    public ConflictException(String message) {
+        super(message);
+    }
+}
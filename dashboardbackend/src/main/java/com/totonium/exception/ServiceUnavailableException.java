@@ -0,0 +1,20 @@
+package com.totonium.exception;
+
+import java.time.Duration;
+
+/**
+ * Exception thrown when the server is temporarily unable to accept the request, such as a full work queue.
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public ServiceUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
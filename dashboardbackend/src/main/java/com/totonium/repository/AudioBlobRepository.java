@@ -0,0 +1,33 @@
+package com.totonium.repository;
+
+import com.totonium.entity.AudioBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AudioBlobRepository extends JpaRepository<AudioBlob, String> {
+
+    List<AudioBlob> findByContentHashStartingWith(String prefix);
+
+    Optional<AudioBlob> findFirstByUploadHash(String uploadHash);
+
+    List<AudioBlob> findByUploadHashIsNull();
+
+    /**
+     * Rewrites file paths recorded before storage backends existed as storage keys ({@code <prefix><aa>/<hash>}).
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE AudioBlob b SET b.filePath = CONCAT(:prefix, SUBSTRING(b.contentHash, 1, 2), '/', b.contentHash)
+            WHERE b.filePath <> CONCAT(:prefix, SUBSTRING(b.contentHash, 1, 2), '/', b.contentHash)
+            """)
+    int useStorageKeys(@Param("prefix") String prefix);
+}
@@ -2,11 +2,92 @@ package com.totonium.repository;
 
 import com.totonium.entity.Audio;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @Repository
 public interface AudioRepository extends JpaRepository<Audio, UUID> {
+
+    interface HashReferences {
+        String getContentHash();
+
+        long getRowCount();
+    }
+
+    List<Audio> findByCategoryOrderByUpdatedAtDesc(String category);
+
+    boolean existsByCategory(String category);
+
+    @Query("SELECT a.id FROM Audio a WHERE a.id IN :ids")
+    Set<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+
+    @Query("SELECT DISTINCT a.filePath FROM Audio a WHERE a.durationSeconds IS NULL")
+    List<String> findFilePathsWithoutDuration();
+
+    List<Audio> findByContentHashIsNull();
+
+    boolean existsByFilePath(String filePath);
+
+    @Query("""
+            SELECT a.contentHash AS contentHash, COUNT(a) AS rowCount FROM Audio a
+            WHERE a.contentHash LIKE CONCAT(:prefix, '%') GROUP BY a.contentHash
+            """)
+    List<HashReferences> countByContentHashPrefix(@Param("prefix") String prefix);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Audio a SET a.missingAt = :now WHERE a.contentHash IN :hashes AND a.missingAt IS NULL")
+    int flagMissing(@Param("hashes") Collection<String> hashes, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Audio a SET a.missingAt = NULL WHERE a.contentHash IN :hashes AND a.missingAt IS NOT NULL")
+    int clearMissing(@Param("hashes") Collection<String> hashes);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Audio a SET a.missingAt = :now WHERE a.id IN :ids AND a.missingAt IS NULL")
+    int flagMissingById(@Param("ids") Collection<UUID> ids, @Param("now") LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Audio a SET a.missingAt = NULL WHERE a.id IN :ids AND a.missingAt IS NOT NULL")
+    int clearMissingById(@Param("ids") Collection<UUID> ids);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Audio a SET a.durationSeconds = :duration WHERE a.filePath = :filePath AND a.durationSeconds IS NULL")
+    int setMissingDuration(@Param("filePath") String filePath, @Param("duration") Long duration);
+
+    /**
+     * Rewrites file paths recorded before storage backends existed as storage keys ({@code <prefix><aa>/<hash>}).
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE Audio a SET a.filePath = CONCAT(:prefix, SUBSTRING(a.contentHash, 1, 2), '/', a.contentHash)
+            WHERE a.contentHash IS NOT NULL
+            AND a.filePath <> CONCAT(:prefix, SUBSTRING(a.contentHash, 1, 2), '/', a.contentHash)
+            """)
+    int useStorageKeys(@Param("prefix") String prefix);
+
+    /**
+     * Points the tracks of a blob at the key it was moved to.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            UPDATE Audio a SET a.contentHash = :to, a.fileName = :to, a.filePath = :filePath
+            WHERE a.contentHash = :from
+            """)
+    int moveToBlob(@Param("from") String from, @Param("to") String to, @Param("filePath") String filePath);
 }
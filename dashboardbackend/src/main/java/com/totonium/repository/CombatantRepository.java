@@ -2,6 +2,7 @@ package com.totonium.repository;
 
 import com.totonium.entity.Combatant;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -19,8 +20,62 @@ public interface CombatantRepository extends JpaRepository<Combatant, UUID> {
 
     List<Combatant> findByIsActiveTrue();
 
-    List<Combatant> findByStatblockId(String statblockId);
+    List<Combatant> findByStatblockId(UUID statblockId);
+
+    @Query("SELECT c FROM Combatant c LEFT JOIN FETCH c.statblock WHERE c.encounterId = :encounterId ORDER BY c.combatOrder ASC, c.initiative DESC")
+    List<Combatant> findByEncounterIdWithStatblock(@Param("encounterId") UUID encounterId);
 
     @Query("SELECT COUNT(c) FROM Combatant c WHERE c.encounterId = :encounterId")
     Long countByEncounterId(@Param("encounterId") UUID encounterId);
+
+    @Modifying
+    @Query("DELETE FROM Combatant c WHERE c.encounterId = :encounterId")
+    int deleteByEncounterId(@Param("encounterId") UUID encounterId);
+
+    /**
+     * Sets the damage type masks of every combatant linked to the statblock.
+     */
+    @Modifying
+    @Query("""
+            UPDATE Combatant c SET c.damageImmunityMask = :immunities, c.damageResistanceMask = :resistances,
+                                   c.damageVulnerabilityMask = :vulnerabilities
+            WHERE c.statblock.id = :statblockId
+            """)
+    int updateDamageMasks(@Param("statblockId") UUID statblockId,
+                          @Param("immunities") int immunities,
+                          @Param("resistances") int resistances,
+                          @Param("vulnerabilities") int vulnerabilities);
+
+    /**
+     * Encounters with at least one combatant linked to the statblock.
+     */
+    @Query("SELECT DISTINCT c.encounterId FROM Combatant c WHERE c.statblock.id = :statblockId")
+    List<UUID> findEncounterIdsByStatblockId(@Param("statblockId") UUID statblockId);
+
+    /**
+     * Statblocks with linked combatants whose damage type masks were never computed.
+     */
+    @Query("""
+            SELECT DISTINCT c.statblock.id FROM Combatant c
+            WHERE c.statblock IS NOT NULL
+              AND (c.damageImmunityMask IS NULL OR c.damageResistanceMask IS NULL OR c.damageVulnerabilityMask IS NULL)
+            """)
+    List<UUID> findStatblockIdsMissingDamageMasks();
+
+    /**
+     * Inserts a combatant with its original id and timestamps; used to rehydrate archives.
+     */
+    @Modifying
+    @Query("""
+            INSERT INTO Combatant (id, name, statblock, initiative, currentHP, maxHP, temporaryHP, size, type,
+                                   alignment, damageImmunityMask, damageResistanceMask, damageVulnerabilityMask,
+                                   encounterId, combatOrder, isActive, isPlayersCharacter, notes,
+                                   createdAt, updatedAt)
+            VALUES (:#{#c.id}, :#{#c.name}, :#{#c.statblock}, :#{#c.initiative}, :#{#c.currentHP}, :#{#c.maxHP},
+                    :#{#c.temporaryHP}, :#{#c.size}, :#{#c.type}, :#{#c.alignment}, :#{#c.damageImmunityMask},
+                    :#{#c.damageResistanceMask}, :#{#c.damageVulnerabilityMask}, :#{#c.encounterId},
+                    :#{#c.combatOrder}, :#{#c.isActive}, :#{#c.isPlayersCharacter}, :#{#c.notes},
+                    :#{#c.createdAt}, :#{#c.updatedAt})
+            """)
+    void insertWithId(@Param("c") Combatant combatant);
 }
@@ -0,0 +1,36 @@
+package com.totonium.repository;
+
+import com.totonium.dto.ArchivedEncounterDTO;
+import com.totonium.entity.EncounterArchive;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface EncounterArchiveRepository extends JpaRepository<EncounterArchive, UUID> {
+
+    /**
+     * Lists archives without loading their compressed payloads.
+     */
+    @Query("""
+            SELECT new com.totonium.dto.ArchivedEncounterDTO(
+                a.id, a.name, a.campaignId, a.endedAt, a.archivedAt, a.combatantCount, a.rawSize, a.compressedSize)
+            FROM EncounterArchive a
+            ORDER BY a.archivedAt DESC
+            """)
+    List<ArchivedEncounterDTO> findAllSummaries();
+
+    /**
+     * Locks the archive row so concurrent rehydrations of the same encounter run one after the other.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM EncounterArchive a WHERE a.id = :id")
+    Optional<EncounterArchive> findByIdForUpdate(@Param("id") UUID id);
+}
@@ -1,11 +1,15 @@
 package com.totonium.repository;
 
+import com.totonium.dto.EncounterSummaryDTO;
 import com.totonium.entity.Encounter;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -22,4 +26,52 @@ public interface EncounterRepository extends JpaRepository<Encounter, UUID> {
 
     @Query("SELECT e FROM Encounter e WHERE e.isCompleted = false ORDER BY e.startedAt DESC LIMIT 1")
     Optional<Encounter> findMostRecentActiveEncounter();
+
+    @Query("""
+            SELECT new com.totonium.dto.EncounterSummaryDTO(
+                e.id, e.name, e.description, e.campaignId, e.isCompleted, e.currentRound,
+                e.startedAt, e.endedAt, e.createdAt,
+                COUNT(c.id),
+                SUM(CASE WHEN c.currentHP <= 0 THEN 1 ELSE 0 END),
+                SUM(CASE WHEN c.isPlayersCharacter = true THEN c.currentHP ELSE 0 END),
+                SUM(CASE WHEN c.isPlayersCharacter = true THEN c.maxHP ELSE 0 END))
+            FROM Encounter e LEFT JOIN Combatant c ON c.encounterId = e.id
+            WHERE (:filterCompleted = false OR e.isCompleted = :isCompleted)
+              AND (:filterCampaign = false OR e.campaignId = :campaignId)
+              AND (:hasCursor = false OR e.createdAt < :afterCreatedAt
+                   OR (e.createdAt = :afterCreatedAt AND e.id < :afterId))
+            GROUP BY e.id, e.name, e.description, e.campaignId, e.isCompleted, e.currentRound,
+                     e.startedAt, e.endedAt, e.createdAt
+            ORDER BY e.createdAt DESC, e.id DESC
+            """)
+    List<EncounterSummaryDTO> findSummaries(@Param("filterCompleted") boolean filterCompleted,
+                                            @Param("isCompleted") Boolean isCompleted,
+                                            @Param("filterCampaign") boolean filterCampaign,
+                                            @Param("campaignId") UUID campaignId,
+                                            @Param("hasCursor") boolean hasCursor,
+                                            @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                            @Param("afterId") UUID afterId,
+                                            Limit limit);
+
+    @Query("""
+            SELECT e.id FROM Encounter e
+            WHERE e.isCompleted = true AND COALESCE(e.endedAt, e.updatedAt) < :cutoff
+              AND (e.rehydratedAt IS NULL OR e.rehydratedAt < :cutoff)
+            ORDER BY e.id
+            """)
+    List<UUID> findArchivableIds(@Param("cutoff") LocalDateTime cutoff, Limit limit);
+
+    /**
+     * Inserts an encounter with its original id and timestamps; used to rehydrate archives,
+     * since persist/merge would assign a new generated id.
+     */
+    @Modifying
+    @Query("""
+            INSERT INTO Encounter (id, name, description, campaignId, isCompleted, currentRound,
+                                   currentTurnIndex, startedAt, endedAt, createdAt, updatedAt, rehydratedAt)
+            VALUES (:#{#e.id}, :#{#e.name}, :#{#e.description}, :#{#e.campaignId}, :#{#e.isCompleted},
+                    :#{#e.currentRound}, :#{#e.currentTurnIndex}, :#{#e.startedAt}, :#{#e.endedAt},
+                    :#{#e.createdAt}, :#{#e.updatedAt}, :#{#e.rehydratedAt})
+            """)
+    void insertWithId(@Param("e") Encounter encounter);
 }
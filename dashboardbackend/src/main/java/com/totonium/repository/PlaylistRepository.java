@@ -1,11 +1,26 @@
 package com.totonium.repository;
 
 import com.totonium.entity.Playlist;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface PlaylistRepository extends JpaRepository<Playlist, UUID> {
+
+    /**
+     * Loads a playlist with a row lock, serialising concurrent edits of its track order.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Playlist p WHERE p.id = :id")
+    Optional<Playlist> findForUpdate(@Param("id") UUID id);
+
+    List<Playlist> findByLegacyTrackIdsIsNotNull();
 }
@@ -0,0 +1,56 @@
+package com.totonium.repository;
+
+import com.totonium.entity.PlaylistTrack;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface PlaylistTrackRepository extends JpaRepository<PlaylistTrack, UUID> {
+
+    interface TrackRef {
+        UUID getPlaylistId();
+
+        UUID getAudioId();
+    }
+
+    @Query("SELECT t.audioId FROM PlaylistTrack t WHERE t.playlistId = :playlistId ORDER BY t.position, t.id")
+    List<UUID> findAudioIdsByPlaylistId(@Param("playlistId") UUID playlistId);
+
+    @Query("""
+            SELECT t.playlistId AS playlistId, t.audioId AS audioId FROM PlaylistTrack t
+            WHERE t.playlistId IN :playlistIds ORDER BY t.position, t.id
+            """)
+    List<TrackRef> findAudioIdsByPlaylistIdIn(@Param("playlistIds") Collection<UUID> playlistIds);
+
+    List<PlaylistTrack> findByPlaylistIdOrderByPositionAscIdAsc(UUID playlistId);
+
+    /**
+     * Returns the entries at list indexes {@code [index, index + count)}, found through the (playlist_id, position)
+     * index rather than by loading the playlist.
+     */
+    @Query(value = """
+            SELECT * FROM playlist_tracks WHERE playlist_id = :playlistId
+            ORDER BY position, id LIMIT :count OFFSET :index
+            """, nativeQuery = true)
+    List<PlaylistTrack> findAtIndex(@Param("playlistId") UUID playlistId, @Param("index") int index,
+                                    @Param("count") int count);
+
+    @Query("SELECT MAX(t.position) FROM PlaylistTrack t WHERE t.playlistId = :playlistId")
+    Optional<Long> findMaxPosition(@Param("playlistId") UUID playlistId);
+
+    @Modifying
+    @Query("DELETE FROM PlaylistTrack t WHERE t.playlistId = :playlistId")
+    int deleteByPlaylistId(@Param("playlistId") UUID playlistId);
+
+    @Modifying
+    @Query("DELETE FROM PlaylistTrack t WHERE t.audioId = :audioId")
+    int deleteByAudioId(@Param("audioId") UUID audioId);
+}
@@ -0,0 +1,129 @@
+package com.totonium.security;
+
+import com.totonium.entity.Device;
+import com.totonium.repository.DeviceRepository;
+import com.totonium.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Approved device fingerprints by user, so every request can check that its token's device is still approved
+ * without a query.
+ * <p>
+ * A user's set is loaded on first use and then kept current by {@link com.totonium.service.DeviceService}:
+ * revocations apply immediately and again after commit, approvals after commit. Each change also bumps a version,
+ * and a load that raced a change is used for that request but not cached, so a set read before a revocation is
+ * never stored after it. At most {@code max-entries} users are kept; when full, arbitrary ones are dropped and
+ * reloaded on their next request.
+ */
+@Component
+@RequiredArgsConstructor
+public class ApprovedDeviceIndex {
+
+    private final DeviceRepository deviceRepository;
+    private final UserRepository userRepository;
+
+    @Value("${app.jwt.device-index.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<UUID, Set<String>> approved = new ConcurrentHashMap<>();
+    private final AtomicLong version = new AtomicLong();
+
+    public boolean isApproved(UUID userId, String deviceFingerprint) {
+        Set<String> fingerprints = approved.get(userId);
+        if (fingerprints == null) {
+            fingerprints = load(userId);
+        }
+        return fingerprints.contains(deviceFingerprint);
+    }
+
+    /**
+     * Records an approval once the surrounding transaction commits.
+     */
+    public void approve(UUID userId, String deviceFingerprint) {
+        afterCommit(() -> {
+            version.incrementAndGet();
+            approved.computeIfPresent(userId, (key, fingerprints) -> {
+                fingerprints.add(deviceFingerprint);
+                return fingerprints;
+            });
+        });
+    }
+
+    /**
+     * Locks the device out now, and again after the surrounding transaction commits. If it rolls back instead,
+     * the user's set is dropped and reloaded on the next request.
+     */
+    public void revoke(UUID userId, String deviceFingerprint) {
+        Runnable remove = () -> {
+            version.incrementAndGet();
+            approved.computeIfPresent(userId, (key, fingerprints) -> {
+                fingerprints.remove(deviceFingerprint);
+                return fingerprints;
+            });
+        };
+        remove.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        remove.run();
+                    } else {
+                        version.incrementAndGet();
+                        approved.remove(userId);
+                    }
+                }
+            });
+        }
+    }
+
+    private Set<String> load(UUID userId) {
+        long loadedAt = version.get();
+        Set<String> fingerprints = deviceRepository.findByUserAndApproved(userRepository.getReferenceById(userId), true)
+                .stream()
+                .map(Device::getDeviceFingerprint)
+                .collect(Collectors.toCollection(ConcurrentHashMap::newKeySet));
+
+        if (approved.size() >= maxEntries) {
+            evict();
+        }
+        // Checked under the entry's lock: a change bumps the version before touching the entry, so it either
+        // stops this store or finds the stored set and updates it
+        Set<String> cached = approved.compute(userId, (key, current) ->
+                current != null || version.get() != loadedAt ? current : fingerprints);
+        return cached != null ? cached : fingerprints;
+    }
+
+    private void evict() {
+        Iterator<UUID> iterator = approved.keySet().iterator();
+        while (approved.size() >= maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -3,6 +3,7 @@ package com.totonium.security;
 import com.totonium.entity.User;
 import com.totonium.repository.UserRepository;
 import com.totonium.service.JwtService;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -29,6 +30,8 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
     private final CustomUserDetailsService userDetailsService;
     private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+    private final ApprovedDeviceIndex approvedDeviceIndex;
 
     @Override
     protected void doFilterInternal(
@@ -53,21 +56,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             UUID userId = jwtService.validateTokenAndGetUserId(jwt);
             log.debug("Token validated for user ID: {}", userId);
 
-            // Get user from database to retrieve email
-            User user = userRepository.findById(userId)
-                    .orElseThrow(() -> {
-                        log.warn("User not found for ID: {}", userId);
-                        return new UsernameNotFoundException("User not found");
-                    });
+            // Device tokens stop working as soon as their device is revoked
+            String deviceFingerprint = jwtService.getDeviceFingerprintFromToken(jwt);
+            if (deviceFingerprint != null && !approvedDeviceIndex.isApproved(userId, deviceFingerprint)) {
+                throw new JwtException("Device is no longer approved");
+            }
 
-            // Load full UserDetails with authorities
-            UserDetails userDetails = userDetailsService.loadUserByUsername(user.getEmail());
-            log.debug("User authenticated: {}", user.getEmail());
+            // Email and authorities come from the cache; the user is only read from the database on a miss
+            PrincipalCache.CachedPrincipal principal = principalCache.get(userId, () -> loadPrincipal(userId));
+            log.debug("User authenticated: {}", principal.email());
 
             UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                    user.getEmail(),  // Principal: email string (for getName() to work correctly)
-                    null,             // Credentials: not needed after auth
-                    userDetails.getAuthorities()  // Authorities from UserDetails
+                    principal.email(),  // Principal: email string (for getName() to work correctly)
+                    null,               // Credentials: not needed after auth
+                    principal.authorities()
             );
             authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
             SecurityContextHolder.getContext().setAuthentication(authToken);
@@ -80,4 +82,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private PrincipalCache.CachedPrincipal loadPrincipal(UUID userId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> {
+                    log.warn("User not found for ID: {}", userId);
+                    return new UsernameNotFoundException("User not found");
+                });
+
+        // Load full UserDetails with authorities
+        UserDetails userDetails = userDetailsService.loadUserByUsername(user.getEmail());
+        return new PrincipalCache.CachedPrincipal(user.getEmail(), userDetails.getAuthorities());
+    }
+}
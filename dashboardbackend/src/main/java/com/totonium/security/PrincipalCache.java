@@ -0,0 +1,91 @@
+package com.totonium.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Authenticated principals by user id, so a request with a valid token is authenticated without the user lookups.
+ * Entries expire after {@code ttl} and are dropped on logout and device revocation.
+ * <p>
+ * Reads are a single map lookup. At most {@code max-entries} principals are kept; when full, expired entries are
+ * swept and then arbitrary ones dropped, rather than tracking recency on every request.
+ */
+@Component
+public class PrincipalCache {
+
+    @Value("${app.jwt.principal-cache.ttl:5m}")
+    private Duration ttl;
+
+    @Value("${app.jwt.principal-cache.max-entries:10000}")
+    private int maxEntries;
+
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param email the principal name controllers see
+     */
+    public record CachedPrincipal(String email, Collection<? extends GrantedAuthority> authorities) {
+
+        public CachedPrincipal {
+            authorities = List.copyOf(authorities);
+        }
+    }
+
+    private record Entry(CachedPrincipal principal, long expiresAt) {
+    }
+
+    /**
+     * Returns the cached principal of {@code userId}, loading and caching it if it is absent or expired.
+     */
+    public CachedPrincipal get(UUID userId, Supplier<CachedPrincipal> loader) {
+        long now = System.nanoTime();
+        Entry entry = entries.get(userId);
+        if (entry != null && entry.expiresAt() - now > 0) {
+            return entry.principal();
+        }
+
+        CachedPrincipal principal = loader.get();
+        if (entries.size() >= maxEntries) {
+            evict(now);
+        }
+        entries.put(userId, new Entry(principal, now + ttl.toNanos()));
+        return principal;
+    }
+
+    /**
+     * Drops the user's principal now and again after the surrounding transaction commits, so a request racing
+     * the change cannot re-cache the state from before it.
+     */
+    public void invalidate(UUID userId) {
+        entries.remove(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    entries.remove(userId);
+                }
+            });
+        }
+    }
+
+    private void evict(long now) {
+        entries.values().removeIf(entry -> entry.expiresAt() - now <= 0);
+        Iterator<UUID> iterator = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+}
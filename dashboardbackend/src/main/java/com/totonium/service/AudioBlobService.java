@@ -0,0 +1,534 @@
+package com.totonium.service;
+
+import com.totonium.entity.Audio;
+import com.totonium.entity.AudioBlob;
+import com.totonium.repository.AudioBlobRepository;
+import com.totonium.repository.AudioRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Content-addressed store for audio files. Each distinct file is kept once in {@link AudioStorage} under
+ * {@code blobs/<first two hex digits>/<sha-256>} and reference counted by the Audio rows using it; rows record
+ * that key as their file path.
+ * The hash is always that of the stored bytes. When ingest rewrote an upload for playback (see
+ * {@link AudioService#storeStagedFile}), the hash of the original is kept as the blob's upload hash, and lookups by
+ * an upload's hash match either.
+ * <p>
+ * Blob bookkeeping commits in its own transaction while holding a per-hash lock, so concurrent uploads of the same
+ * content cannot both create the blob. Callers inside a transaction get their reference released again if that
+ * transaction rolls back.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AudioBlobService {
+
+    private static final int LOCK_STRIPES = 64;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    static final String BLOB_PREFIX = "blobs/";
+
+    private final AudioBlobRepository audioBlobRepository;
+    private final AudioRepository audioRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final AudioStorage audioStorage;
+
+    private final ReentrantLock[] locks = createLocks();
+
+    @Value("${app.audio.upload-dir:uploads/audio}")
+    private String uploadDir;
+
+    public static MessageDigest newContentDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Creates an empty staging file below the upload directory, on the same filesystem as locally stored blobs so
+     * committing it is a rename.
+     */
+    public Path createTempFile() throws IOException {
+        Path tempDir = Paths.get(uploadDir, "tmp");
+        Files.createDirectories(tempDir);
+        return Files.createTempFile(tempDir, "upload-", ".part");
+    }
+
+    public static String blobKey(String contentHash) {
+        return BLOB_PREFIX + contentHash.substring(0, 2) + "/" + contentHash;
+    }
+
+    /**
+     * A blob a caller holds a reference to.
+     *
+     * @param key         storage key of the blob
+     * @param contentHash hash of the stored bytes
+     * @param size        size of the stored bytes
+     */
+    public record StoredBlob(String key, String contentHash, long size) {
+    }
+
+    /**
+     * Moves a fully written staging file into the store and takes a reference to it. If the content is already
+     * stored, the staging file is discarded instead.
+     *
+     * @param contentHash hash of the staged file as it is now
+     * @param size        size of the staged file as it is now
+     * @param uploadHash  hash of the file as uploaded, before any rewrite
+     */
+    public StoredBlob store(Path tempFile, String contentHash, long size, String uploadHash) {
+        String key = locked(contentHash, () -> inNewTransaction(() -> {
+            Optional<AudioBlob> existing = audioBlobRepository.findById(contentHash);
+            if (existing.isPresent() && audioStorage.exists(existing.get().getFilePath())) {
+                AudioBlob blob = existing.get();
+                blob.setRefCount(blob.getRefCount() + 1);
+                audioBlobRepository.save(blob);
+                deleteQuietly(tempFile);
+                log.info("Deduplicated upload against blob {}", contentHash);
+                return blob.getFilePath();
+            }
+
+            String target = blobKey(contentHash);
+            try {
+                audioStorage.put(target, tempFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to store blob " + contentHash, e);
+            }
+            AudioBlob blob = existing.orElseGet(() -> AudioBlob.builder().contentHash(contentHash).refCount(0).build());
+            blob.setUploadHash(uploadHash);
+            blob.setFilePath(target);
+            blob.setFileSize(size);
+            blob.setRefCount(blob.getRefCount() + 1);
+            audioBlobRepository.save(blob);
+            return target;
+        }));
+        releaseOnRollback(contentHash);
+        return new StoredBlob(key, contentHash, size);
+    }
+
+    /**
+     * Whether an upload with this hash and size is already stored, as uploaded or rewritten.
+     */
+    public boolean isStored(String uploadHash, long size) {
+        return findUploaded(uploadHash, size)
+                .filter(blob -> audioStorage.exists(blob.getFilePath()))
+                .isPresent();
+    }
+
+    /**
+     * Takes a reference to already stored content without receiving its bytes.
+     *
+     * @param uploadHash hash of the file as uploaded
+     * @return the blob holding that upload, or empty if no intact one exists
+     */
+    public Optional<StoredBlob> acquire(String uploadHash, long size) {
+        Optional<String> contentHash = findUploaded(uploadHash, size).map(AudioBlob::getContentHash);
+        if (contentHash.isEmpty()) {
+            return Optional.empty();
+        }
+
+        Optional<StoredBlob> stored = locked(contentHash.get(), () -> inNewTransaction(() ->
+                audioBlobRepository.findById(contentHash.get())
+                        .filter(blob -> audioStorage.exists(blob.getFilePath()))
+                        .map(blob -> {
+                            blob.setRefCount(blob.getRefCount() + 1);
+                            audioBlobRepository.save(blob);
+                            return new StoredBlob(blob.getFilePath(), blob.getContentHash(), blob.getFileSize());
+                        })));
+        if (stored.isPresent()) {
+            releaseOnRollback(contentHash.get());
+        }
+        return stored;
+    }
+
+    /**
+     * The blob holding these bytes, or else the blob stored for an upload of them. A rewrite may change the size,
+     * so only a direct match is checked against it.
+     */
+    private Optional<AudioBlob> findUploaded(String uploadHash, long size) {
+        return audioBlobRepository.findById(uploadHash)
+                .filter(blob -> blob.getFileSize() == size)
+                .or(() -> audioBlobRepository.findFirstByUploadHash(uploadHash));
+    }
+
+    /**
+     * Drops a reference, deleting the blob once nothing uses it.
+     */
+    public void release(String contentHash) {
+        locked(contentHash, () -> inNewTransaction(() -> {
+            AudioBlob blob = audioBlobRepository.findById(contentHash).orElse(null);
+            if (blob == null) {
+                log.warn("Released unknown blob {}", contentHash);
+                return null;
+            }
+            if (blob.getRefCount() > 1) {
+                blob.setRefCount(blob.getRefCount() - 1);
+                audioBlobRepository.save(blob);
+                return null;
+            }
+            audioBlobRepository.delete(blob);
+            deleteObjectQuietly(blob.getFilePath());
+            deleteObjectQuietly(AudioPeaksService.peaksKey(contentHash));
+            log.info("Deleted unreferenced blob {} ({} bytes)", contentHash, blob.getFileSize());
+            return null;
+        }));
+    }
+
+    /**
+     * Sets a blob's reference count to the number of rows using it, provided it still holds the count the caller
+     * observed. A blob no row uses is removed, and its storage key handed to {@code disposeObject} while the hash is
+     * locked, so an upload of the same content cannot land in between.
+     *
+     * @return whether the blob was changed
+     */
+    public boolean correctRefCount(String contentHash, int observed, long references, Consumer<String> disposeObject) {
+        return locked(contentHash, () -> inNewTransaction(() -> {
+            AudioBlob blob = audioBlobRepository.findById(contentHash).orElse(null);
+            if (blob == null || blob.getRefCount() != observed) {
+                return false;
+            }
+            if (references > 0) {
+                blob.setRefCount((int) references);
+                audioBlobRepository.save(blob);
+                log.info("Corrected reference count of blob {} from {} to {}", contentHash, observed, references);
+                return true;
+            }
+            audioBlobRepository.delete(blob);
+            if (audioStorage.exists(blob.getFilePath())) {
+                disposeObject.accept(blob.getFilePath());
+            }
+            deleteObjectQuietly(AudioPeaksService.peaksKey(contentHash));
+            log.info("Removed unreferenced blob {} ({} bytes)", contentHash, blob.getFileSize());
+            return true;
+        }));
+    }
+
+    /**
+     * Releases the reference once the current transaction commits, or immediately outside a transaction.
+     */
+    public void releaseAfterCommit(String contentHash) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            release(contentHash);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                release(contentHash);
+            }
+        });
+    }
+
+    /**
+     * Moves files uploaded before content addressing into the blob store, merging duplicates, rewrites paths
+     * recorded before storage backends as storage keys, and verifies the hashes of blobs stored before upload hashes
+     * were recorded. Runs before other startup listeners so they see the final file paths.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void adoptLegacyFiles() {
+        int blobs = audioBlobRepository.useStorageKeys(BLOB_PREFIX);
+        int tracks = audioRepository.useStorageKeys(BLOB_PREFIX);
+        if (blobs > 0 || tracks > 0) {
+            log.info("Rewrote file paths of {} blobs and {} tracks as storage keys", blobs, tracks);
+        }
+
+        List<Audio> legacy = audioRepository.findByContentHashIsNull();
+        if (!legacy.isEmpty()) {
+            log.info("Adopting {} legacy audio files into the blob store", legacy.size());
+        }
+        for (Audio audio : legacy) {
+            try {
+                adopt(audio);
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to adopt audio {} at {}", audio.getId(), audio.getFilePath(), e);
+            }
+        }
+
+        verifyContentHashes();
+    }
+
+    private void adopt(Audio audio) throws IOException {
+        Path legacyPath = Paths.get(audio.getFilePath());
+        if (!Files.exists(legacyPath)) {
+            log.warn("Audio file missing on disk, skipping adoption: {}", legacyPath);
+            return;
+        }
+
+        String uploadHash = hash(legacyPath);
+        Path staged = createTempFile();
+        try {
+            // Trailing-moov MP4s get a faststart copy, since adoption changes their ETag anyway; everything else is
+            // staged as a hard link, falling back to a copy
+            String contentHash = uploadHash;
+            if (Mp4Faststart.rewrite(legacyPath, staged)) {
+                contentHash = hash(staged);
+            } else {
+                Files.deleteIfExists(staged);
+                try {
+                    Files.createLink(staged, legacyPath);
+                } catch (UnsupportedOperationException | IOException e) {
+                    Files.copy(legacyPath, staged);
+                }
+            }
+            adoptStaged(audio, legacyPath, staged, contentHash, Files.size(staged), uploadHash);
+        } finally {
+            deleteQuietly(staged);
+        }
+        deleteQuietly(legacyPath);
+    }
+
+    private void adoptStaged(Audio audio, Path legacyPath, Path staged, String contentHash, long size, String uploadHash) {
+        String target = blobKey(contentHash);
+
+        // The legacy file stays in place until the rows pointing at the blob have committed
+        locked(contentHash, () -> {
+            boolean created = false;
+            if (!audioBlobRepository.existsById(contentHash)) {
+                try {
+                    audioStorage.put(target, staged);
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Failed to adopt " + legacyPath, e);
+                }
+                created = true;
+            }
+            try {
+                inNewTransaction(() -> {
+                    AudioBlob blob = audioBlobRepository.findById(contentHash)
+                            .orElseGet(() -> AudioBlob.builder()
+                                    .contentHash(contentHash)
+                                    .uploadHash(uploadHash)
+                                    .filePath(target)
+                                    .fileSize(size)
+                                    .refCount(0)
+                                    .build());
+                    blob.setRefCount(blob.getRefCount() + 1);
+                    audioBlobRepository.save(blob);
+
+                    Audio current = audioRepository.findById(audio.getId()).orElseThrow();
+                    current.setFilePath(blob.getFilePath());
+                    current.setFileName(contentHash);
+                    current.setContentHash(contentHash);
+                    current.setFileSize(size);
+                    audioRepository.save(current);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                if (created) {
+                    deleteObjectQuietly(target);
+                }
+                throw e;
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Blobs stored before upload hashes were recorded may hold a faststart rewrite under the hash of the original
+     * upload. Each MP4 among them is rehashed, and moved to the key of its actual content if that differs, keeping
+     * the old hash as its upload hash. Other formats were never rewritten. Verified blobs get an upload hash, so
+     * each is checked once.
+     */
+    private void verifyContentHashes() {
+        List<AudioBlob> unverified = audioBlobRepository.findByUploadHashIsNull();
+        if (unverified.isEmpty()) {
+            return;
+        }
+
+        int moved = 0;
+        for (AudioBlob blob : unverified) {
+            try {
+                if (verify(blob)) {
+                    moved++;
+                }
+            } catch (IOException | RuntimeException e) {
+                log.warn("Failed to verify content hash of blob {}", blob.getContentHash(), e);
+            }
+        }
+        log.info("Verified content hashes of {} blobs, {} moved to the hash of their stored bytes",
+                unverified.size(), moved);
+    }
+
+    private boolean verify(AudioBlob blob) throws IOException {
+        String uploadHash = blob.getContentHash();
+        String key = blob.getFilePath();
+        Path staged = isMp4(key, blob.getFileSize()) ? download(key, blob.getFileSize()) : null;
+        try {
+            String contentHash = staged != null ? hash(staged) : uploadHash;
+            boolean moved = locked(uploadHash, () -> locked(contentHash, () -> inNewTransaction(() -> {
+                AudioBlob current = audioBlobRepository.findById(uploadHash).orElse(null);
+                if (current == null) {
+                    return false;
+                }
+                if (contentHash.equals(uploadHash)) {
+                    current.setUploadHash(uploadHash);
+                    audioBlobRepository.save(current);
+                    return false;
+                }
+                moveBlob(current, contentHash, staged);
+                return true;
+            })));
+            if (moved) {
+                deleteObjectQuietly(key);
+                log.info("Moved blob {} to {}, the hash of its stored bytes", uploadHash, contentHash);
+            }
+            return moved;
+        } finally {
+            if (staged != null) {
+                deleteQuietly(staged);
+            }
+        }
+    }
+
+    /**
+     * Re-keys a blob under the hash of its stored bytes, merging it into an existing blob with that hash, and
+     * points its tracks at the result.
+     */
+    private void moveBlob(AudioBlob blob, String contentHash, Path staged) {
+        AudioBlob target = audioBlobRepository.findById(contentHash)
+                .filter(existing -> audioStorage.exists(existing.getFilePath()))
+                .orElse(null);
+        if (target == null) {
+            String key = blobKey(contentHash);
+            try {
+                audioStorage.put(key, staged);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to move blob " + blob.getContentHash(), e);
+            }
+            target = audioBlobRepository.findById(contentHash)
+                    .orElseGet(() -> AudioBlob.builder().contentHash(contentHash).refCount(0).build());
+            target.setFilePath(key);
+            target.setFileSize(blob.getFileSize());
+        }
+        target.setUploadHash(blob.getContentHash());
+        target.setRefCount(target.getRefCount() + blob.getRefCount());
+        audioBlobRepository.delete(blob);
+        audioBlobRepository.save(target);
+        audioRepository.moveToBlob(blob.getContentHash(), contentHash, target.getFilePath());
+    }
+
+    private boolean isMp4(String key, long size) throws IOException {
+        if (size < 8) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(8);
+        try (ReadableByteChannel in = audioStorage.open(key, 0, 8)) {
+            while (header.hasRemaining()) {
+                if (in.read(header) < 0) {
+                    return false;
+                }
+            }
+        }
+        return "ftyp".equals(new String(header.array(), 4, 4, StandardCharsets.ISO_8859_1));
+    }
+
+    private Path download(String key, long size) throws IOException {
+        Path staged = createTempFile();
+        try (FileChannel out = FileChannel.open(staged, StandardOpenOption.WRITE)) {
+            audioStorage.transferTo(key, 0, size, out);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(staged);
+            throw e;
+        }
+        return staged;
+    }
+
+    public static String hash(Path path) throws IOException {
+        MessageDigest digest = newContentDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (channel.read(buffer) != -1) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void releaseOnRollback(String contentHash) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    release(contentHash);
+                }
+            }
+        });
+    }
+
+    private <T> T locked(String contentHash, Supplier<T> action) {
+        ReentrantLock lock = locks[Math.floorMod(contentHash.hashCode(), LOCK_STRIPES)];
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> T inNewTransaction(Supplier<T> action) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return transaction.execute(status -> action.get());
+    }
+
+    private void deleteObjectQuietly(String key) {
+        try {
+            audioStorage.delete(key);
+        } catch (IOException e) {
+            log.warn("Failed to delete audio file: {}", key, e);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete audio file: {}", path, e);
+        }
+    }
+
+    private static ReentrantLock[] createLocks() {
+        ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        return locks;
+    }
+}
@@ -0,0 +1,90 @@
+package com.totonium.service;
+
+import com.totonium.dto.AudioDTO;
+import com.totonium.dto.BulkUploadResultDTO;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Stores several uploaded files concurrently. Each file goes through {@link AudioService#upload} in its own
+ * transaction on a virtual thread, so one bad file is reported instead of failing the whole batch.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AudioBulkUploadService {
+
+    private final AudioService audioService;
+
+    @Value("${app.audio.bulk-upload.parallelism:4}")
+    private int parallelism;
+
+    public List<BulkUploadResultDTO> uploadAll(MultipartFile[] files, String category) {
+        // Virtual threads are cheap; the semaphore is what bounds disk and database load
+        Semaphore permits = new Semaphore(Math.max(1, parallelism));
+        List<Future<BulkUploadResultDTO>> futures = new ArrayList<>(files.length);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (MultipartFile file : files) {
+                futures.add(executor.submit(() -> {
+                    permits.acquire();
+                    try {
+                        return uploadOne(file, category);
+                    } finally {
+                        permits.release();
+                    }
+                }));
+            }
+        }
+
+        List<BulkUploadResultDTO> results = new ArrayList<>(files.length);
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                results.add(futures.get(i).get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                results.add(failed(files[i], "Interrupted"));
+            } catch (ExecutionException e) {
+                results.add(failed(files[i], e.getCause().getMessage()));
+            }
+        }
+
+        long failures = results.stream().filter(r -> r.status() == BulkUploadResultDTO.Status.FAILED).count();
+        log.info("Bulk upload: {} of {} files stored, {} failed", files.length - failures, files.length, failures);
+        return results;
+    }
+
+    private BulkUploadResultDTO uploadOne(MultipartFile file, String category) {
+        try {
+            AudioDTO audio = audioService.upload(file, displayName(file), category);
+            return new BulkUploadResultDTO(file.getOriginalFilename(), BulkUploadResultDTO.Status.CREATED, audio, null);
+        } catch (RuntimeException e) {
+            log.warn("Bulk upload of {} failed", file.getOriginalFilename(), e);
+            return failed(file, NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+        }
+    }
+
+    private BulkUploadResultDTO failed(MultipartFile file, String reason) {
+        return new BulkUploadResultDTO(file.getOriginalFilename(), BulkUploadResultDTO.Status.FAILED, null, reason);
+    }
+
+    private String displayName(MultipartFile file) {
+        String name = file.getOriginalFilename();
+        if (name == null || name.isBlank()) {
+            return "Untitled";
+        }
+        return name.contains(".") ? name.substring(0, name.lastIndexOf(".")) : name;
+    }
+}
@@ -0,0 +1,216 @@
+package com.totonium.service;
+
+import com.totonium.service.AudioService.StreamSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded LRU cache of small, frequently triggered tracks (sound effects by default), held in direct
+ * buffers outside the heap. A hit carries everything needed to answer a stream request, so cached tracks are
+ * served without touching the database or the storage backend.
+ * <p>
+ * Tracks are evicted once the transaction changing them commits. A request that resolved a track before that takes
+ * a {@link #generation()} first; its copy is not cached if the track was evicted since, so a deleted or renamed track
+ * is never put back. Evictions are recorded per stripe of ids, so an unrelated eviction occasionally skips caching a
+ * track once.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AudioCacheService {
+
+    public record CachedAudio(StreamSource source, ByteBuffer data) {
+
+        /**
+         * Returns an independent read-only view, safe to position and slice per request.
+         */
+        public ByteBuffer bytes() {
+            return data.asReadOnlyBuffer();
+        }
+    }
+
+    public record Stats(
+            long hits,
+            long misses,
+            long evictions,
+            int entries,
+            long bytes,
+            long maxBytes
+    ) {
+    }
+
+    private static final int GENERATION_STRIPES = 256;
+
+    private final AudioStreamService audioStreamService;
+
+    @Value("${app.audio.cache.max-bytes:64MB}")
+    private DataSize maxBytes;
+
+    @Value("${app.audio.cache.max-entry-bytes:2MB}")
+    private DataSize maxEntryBytes;
+
+    @Value("${app.audio.cache.categories:sfx}")
+    private List<String> categories;
+
+    // Access-ordered: iteration starts at the least recently used entry
+    private final LinkedHashMap<UUID, CachedAudio> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    private final AtomicLong generation = new AtomicLong();
+    // Generation of the last eviction in each stripe of ids, guarded by entries
+    private final long[] evictedAt = new long[GENERATION_STRIPES];
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public List<String> getCategories() {
+        return categories;
+    }
+
+    public @Nullable CachedAudio get(UUID id) {
+        CachedAudio cached;
+        synchronized (entries) {
+            cached = entries.get(id);
+        }
+        if (cached != null) {
+            hits.incrementAndGet();
+        }
+        return cached;
+    }
+
+    /**
+     * Returns the current eviction generation, to be taken before resolving the sources passed to
+     * {@link #onMiss} and {@link #preload}.
+     */
+    public long generation() {
+        return generation.get();
+    }
+
+    /**
+     * Called after a track was served from disk; caches it if it belongs to a cached category and fits,
+     * evicting least recently used entries to make room.
+     *
+     * @param generation the {@link #generation()} taken before {@code source} was resolved
+     */
+    public void onMiss(StreamSource source, long generation) {
+        if (!isCacheable(source)) {
+            return;
+        }
+        misses.incrementAndGet();
+        load(source, generation, true);
+    }
+
+    /**
+     * Caches a track only if there is free room, so preloading never evicts what is already loaded.
+     *
+     * @param generation the {@link #generation()} taken before {@code source} was resolved
+     */
+    public boolean preload(StreamSource source, long generation) {
+        return isCacheable(source) && load(source, generation, false);
+    }
+
+    /**
+     * Evicts the track once the current transaction commits, or immediately outside a transaction.
+     */
+    public void evictAfterCommit(UUID id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evict(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                evict(id);
+            }
+        });
+    }
+
+    private void evict(UUID id) {
+        synchronized (entries) {
+            evictedAt[stripe(id)] = generation.incrementAndGet();
+            CachedAudio removed = entries.remove(id);
+            if (removed != null) {
+                bytes -= removed.data().capacity();
+            }
+        }
+    }
+
+    public Stats stats() {
+        synchronized (entries) {
+            return new Stats(hits.get(), misses.get(), evictions.get(), entries.size(), bytes, maxBytes.toBytes());
+        }
+    }
+
+    private boolean isCacheable(StreamSource source) {
+        return categories.contains(source.category()) && source.length() <= maxEntryBytes.toBytes();
+    }
+
+    private static int stripe(UUID id) {
+        return Math.floorMod(id.hashCode(), GENERATION_STRIPES);
+    }
+
+    private boolean load(StreamSource source, long generation, boolean evictToFit) {
+        synchronized (entries) {
+            if (entries.containsKey(source.id())
+                    || (!evictToFit && bytes + source.length() > maxBytes.toBytes())) {
+                return false;
+            }
+        }
+
+        ByteBuffer data;
+        try {
+            data = read(source);
+        } catch (IOException e) {
+            log.warn("Failed to cache audio {}: {}", source.id(), e.getMessage());
+            return false;
+        }
+
+        synchronized (entries) {
+            if (entries.containsKey(source.id()) || evictedAt[stripe(source.id())] > generation) {
+                return false;
+            }
+            if (bytes + data.capacity() > maxBytes.toBytes()) {
+                if (!evictToFit) {
+                    return false;
+                }
+                Iterator<CachedAudio> eldest = entries.values().iterator();
+                while (bytes + data.capacity() > maxBytes.toBytes() && eldest.hasNext()) {
+                    bytes -= eldest.next().data().capacity();
+                    eldest.remove();
+                    evictions.incrementAndGet();
+                }
+            }
+            entries.put(source.id(), new CachedAudio(source, data));
+            bytes += data.capacity();
+            return true;
+        }
+    }
+
+    private ByteBuffer read(StreamSource source) throws IOException {
+        try (ReadableByteChannel channel = audioStreamService.open(source)) {
+            ByteBuffer data = ByteBuffer.allocateDirect((int) source.length());
+            while (data.hasRemaining()) {
+                if (channel.read(data) < 0) {
+                    throw new IOException("File shrank while caching: " + source.name());
+                }
+            }
+            return data.flip();
+        }
+    }
+}
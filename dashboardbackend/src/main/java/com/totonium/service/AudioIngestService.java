@@ -0,0 +1,242 @@
+package com.totonium.service;
+
+import com.totonium.dto.AudioDTO;
+import com.totonium.dto.IngestJobDTO;
+import com.totonium.dto.IngestJobDTO.Status;
+import com.totonium.exception.ResourceNotFoundException;
+import com.totonium.exception.ServiceUnavailableException;
+import com.totonium.service.AudioBlobService.StoredBlob;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous uploads: the request only stages the file and returns a job, and a bounded worker pool hashes,
+ * optimises, stores and probes it before publishing the Audio row. Clients poll the job for progress.
+ * <p>
+ * At most {@code parallelism} jobs run and {@code queue-capacity} more wait. While the queue is full, uploads are
+ * refused with 503 by {@link com.totonium.config.IngestCapacityFilter} before their body is read; uploads that got
+ * past it as the last slot was taken are refused here before they are staged. Jobs live in memory: ingests
+ * interrupted by a restart are lost, and their staging files are left for {@link StorageReconcileService}.
+ * Finished jobs stay visible for {@code retain-finished}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AudioIngestService {
+
+    private final AudioService audioService;
+    private final AudioBlobService audioBlobService;
+
+    @Value("${app.audio.ingest.parallelism:2}")
+    private int parallelism;
+
+    @Value("${app.audio.ingest.queue-capacity:32}")
+    private int queueCapacity;
+
+    @Value("${app.audio.ingest.retain-finished:1h}")
+    private Duration retainFinished;
+
+    @Value("${app.audio.ingest.retry-after:5s}")
+    private Duration retryAfter;
+
+    private final Map<UUID, IngestJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicLong tickets = new AtomicLong();
+
+    private Semaphore slots;
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void start() {
+        slots = new Semaphore(Math.max(1, parallelism) + Math.max(0, queueCapacity));
+        workers = Executors.newFixedThreadPool(Math.max(1, parallelism),
+                Thread.ofPlatform().name("audio-ingest-", 1).daemon(true).factory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Fails fast when no slot is free. Advisory only: {@link #submit} makes the actual reservation.
+     *
+     * @throws ServiceUnavailableException if the queue is full
+     */
+    public void checkCapacity() {
+        if (slots.availablePermits() == 0) {
+            throw new ServiceUnavailableException("Ingest queue is full, retry later", retryAfter);
+        }
+    }
+
+    /**
+     * Stages the upload and queues it for processing.
+     *
+     * @throws ServiceUnavailableException if the queue is full
+     */
+    public IngestJobDTO submit(MultipartFile file, String name, String category) throws IOException {
+        if (!slots.tryAcquire()) {
+            throw new ServiceUnavailableException("Ingest queue is full, retry later", retryAfter);
+        }
+
+        IngestJob job;
+        try {
+            Path staged = audioBlobService.createTempFile();
+            try {
+                file.transferTo(staged);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(staged);
+                throw e;
+            }
+            job = new IngestJob(UUID.randomUUID(), tickets.incrementAndGet(), name, category,
+                    file.getContentType(), Files.size(staged), staged);
+            jobs.put(job.id, job);
+            workers.execute(() -> {
+                try {
+                    process(job);
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            slots.release();
+            throw e;
+        }
+
+        log.info("Queued ingest {} for {} ({} bytes)", job.id, name, job.size);
+        return toDTO(job);
+    }
+
+    public IngestJobDTO status(UUID id) {
+        IngestJob job = jobs.get(id);
+        if (job == null) {
+            throw new ResourceNotFoundException("Ingest job", id);
+        }
+        return toDTO(job);
+    }
+
+    public List<IngestJobDTO> findAll() {
+        return jobs.values().stream()
+                .sorted(Comparator.comparingLong(job -> job.ticket))
+                .map(this::toDTO)
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${app.audio.ingest.sweep-interval:PT5M}")
+    public void expireFinishedJobs() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(retainFinished);
+        jobs.values().removeIf(job -> job.status.isFinished() && job.updatedAt.isBefore(cutoff));
+    }
+
+    private void process(IngestJob job) {
+        try {
+            job.advance(Status.HASHING);
+            String uploadHash = AudioBlobService.hash(job.staged);
+
+            job.advance(Status.STORING);
+            StoredBlob blob = audioService.storeStagedFile(job.staged, uploadHash, job.size);
+
+            job.advance(Status.PROBING);
+            AudioDTO audio;
+            try {
+                audio = audioService.registerStoredFile(job.name, blob.key(), job.contentType, blob.size(),
+                        job.category, blob.contentHash());
+            } catch (RuntimeException e) {
+                audioBlobService.release(blob.contentHash());
+                throw e;
+            }
+
+            job.audio = audio;
+            job.advance(Status.DONE);
+            log.info("Ingested {} -> audio {}", job.name, audio.id());
+        } catch (IOException | RuntimeException e) {
+            job.error = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            job.advance(Status.FAILED);
+            log.warn("Ingest {} of {} failed", job.id, job.name, e);
+        } finally {
+            try {
+                Files.deleteIfExists(job.staged);
+            } catch (IOException e) {
+                log.warn("Failed to delete staging file: {}", job.staged, e);
+            }
+        }
+    }
+
+    private int queuePosition(IngestJob job) {
+        if (job.status != Status.QUEUED) {
+            return 0;
+        }
+        return (int) jobs.values().stream()
+                .filter(other -> other.status == Status.QUEUED && other.ticket < job.ticket)
+                .count();
+    }
+
+    private IngestJobDTO toDTO(IngestJob job) {
+        return new IngestJobDTO(
+                job.id,
+                job.name,
+                job.category,
+                job.size,
+                job.status,
+                queuePosition(job),
+                job.audio,
+                job.error,
+                job.createdAt,
+                job.updatedAt
+        );
+    }
+
+    private static final class IngestJob {
+        private final UUID id;
+        private final long ticket;
+        private final String name;
+        private final String category;
+        @Nullable
+        private final String contentType;
+        private final long size;
+        private final Path staged;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private volatile Status status = Status.QUEUED;
+        private volatile LocalDateTime updatedAt = createdAt;
+        private volatile @Nullable AudioDTO audio;
+        private volatile @Nullable String error;
+
+        private IngestJob(UUID id, long ticket, String name, String category, @Nullable String contentType,
+                          long size, Path staged) {
+            this.id = id;
+            this.ticket = ticket;
+            this.name = name;
+            this.category = category;
+            this.contentType = contentType;
+            this.size = size;
+            this.staged = staged;
+        }
+
+        private void advance(Status status) {
+            this.status = status;
+            this.updatedAt = LocalDateTime.now();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.totonium.service;
+
+import com.totonium.repository.AudioRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fills in track durations from container headers, at upload time and as a backfill over stored files.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AudioMetadataService {
+
+    private final AudioRepository audioRepository;
+    private final AudioStorage audioStorage;
+
+    @Value("${app.audio.probe.parallelism:4}")
+    private int parallelism;
+
+    /**
+     * Returns the duration of a stored object rounded to whole seconds, or null if the format is not recognised.
+     * Objects in a remote store are downloaded to a temporary file first, since probing seeks through the file.
+     */
+    public @Nullable Long probeDurationSeconds(String key) {
+        Path local = audioStorage.localPath(key);
+        if (local != null) {
+            return probeDurationSeconds(local);
+        }
+
+        Path temp = null;
+        try {
+            AudioStorage.StoredObject object = audioStorage.stat(key);
+            if (object == null) {
+                return null;
+            }
+            temp = Files.createTempFile("probe-", ".audio");
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                audioStorage.transferTo(key, 0, object.length(), out);
+            }
+            return probeDurationSeconds(temp);
+        } catch (IOException e) {
+            log.warn("Failed to fetch audio file {} for probing: {}", key, e.getMessage());
+            return null;
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    log.warn("Failed to delete probe file: {}", temp, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the duration rounded to whole seconds, or null if the format is not recognised.
+     */
+    public @Nullable Long probeDurationSeconds(Path path) {
+        try {
+            return AudioProbe.probe(path)
+                    .map(result -> Math.round(result.durationSeconds()))
+                    .orElse(null);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to probe audio file {}: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Probes every stored file that still has tracks without a duration, several files at a time.
+     * Tracks sharing a blob are updated together, so each file is read once.
+     */
+    public Map<String, Integer> backfillDurations() {
+        List<String> filePaths = audioRepository.findFilePathsWithoutDuration();
+        AtomicInteger probed = new AtomicInteger();
+        AtomicInteger updated = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism))) {
+            for (String filePath : filePaths) {
+                executor.execute(() -> {
+                    Long duration = probeDurationSeconds(filePath);
+                    if (duration != null) {
+                        probed.incrementAndGet();
+                        updated.addAndGet(audioRepository.setMissingDuration(filePath, duration));
+                    }
+                });
+            }
+        }
+
+        log.info("Duration backfill: probed {} of {} files, updated {} tracks",
+                probed.get(), filePaths.size(), updated.get());
+        return Map.of("files", filePaths.size(), "probed", probed.get(), "updated", updated.get());
+    }
+}
@@ -0,0 +1,509 @@
+package com.totonium.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.totonium.dto.AudioPackDTO;
+import com.totonium.entity.Audio;
+import com.totonium.entity.Playlist;
+import com.totonium.exception.ResourceNotFoundException;
+import com.totonium.repository.AudioRepository;
+import com.totonium.repository.PlaylistRepository;
+import com.totonium.repository.PlaylistTrackRepository;
+import com.totonium.service.AudioService.StreamSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Pack files: all tracks of a category or playlist concatenated into one file, with a JSON offset index, so a
+ * client can preload a whole soundboard with a single request (or range-slice the pack).
+ * <p>
+ * A pack is built on first request and then kept in step with its membership incrementally. Uploads, edits and
+ * deletes mark it stale once their transaction commits; the next request appends new tracks to the end of the
+ * file and drops removed ones from the index only. Bytes below an index's length are never rewritten, so a client
+ * holding an older index can keep slicing with it. Once dead bytes outweigh live ones the pack is compacted into a
+ * new generation file; the previous generation is kept until the next compaction for requests still reading it.
+ * Pack files are derived data and always live on the local disk, whichever backend holds the tracks. Only
+ * categories with tracks and existing playlists get a pack; a category's pack is dropped with its files once the
+ * category is empty, so packs stay bounded by the library.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AudioPackService {
+
+    private final AudioRepository audioRepository;
+    private final PlaylistRepository playlistRepository;
+    private final PlaylistTrackRepository playlistTrackRepository;
+    private final ObjectMapper objectMapper;
+    private final AudioStorage audioStorage;
+
+    private final Map<UUID, Pack> packs = new ConcurrentHashMap<>();
+
+    @Value("${app.audio.upload-dir:uploads/audio}")
+    private String uploadDir;
+
+    @Value("${app.audio.packs.max-bytes:64MB}")
+    private DataSize maxBytes;
+
+    public AudioPackDTO getCategoryPack(String category) {
+        Pack pack = categoryPack(category);
+        return toDTO(pack, sync(pack));
+    }
+
+    public AudioPackDTO getPlaylistPack(UUID playlistId) {
+        Pack pack = playlistPack(playlistId);
+        return toDTO(pack, sync(pack));
+    }
+
+    public StreamSource findCategoryPackSource(String category) {
+        Pack pack = categoryPack(category);
+        return toStreamSource(pack, sync(pack));
+    }
+
+    public StreamSource findPlaylistPackSource(UUID playlistId) {
+        Pack pack = playlistPack(playlistId);
+        return toStreamSource(pack, sync(pack));
+    }
+
+    public void categoryChangedAfterCommit(String category) {
+        afterCommit(() -> markStale(categoryPackId(category)));
+    }
+
+    /**
+     * Marks every playlist pack stale, for track changes that may affect any playlist.
+     */
+    public void playlistsChangedAfterCommit() {
+        afterCommit(() -> packs.values().stream()
+                .filter(pack -> pack.kind == Kind.PLAYLIST)
+                .forEach(pack -> pack.stale = true));
+    }
+
+    public void playlistChangedAfterCommit(UUID playlistId) {
+        afterCommit(() -> markStale(playlistId));
+    }
+
+    public void playlistDeletedAfterCommit(UUID playlistId) {
+        afterCommit(() -> {
+            Pack pack = packs.remove(playlistId);
+            if (pack == null) {
+                deletePackFiles(playlistId, -1);
+                return;
+            }
+            synchronized (pack) {
+                deletePackFiles(playlistId, -1);
+            }
+        });
+    }
+
+    static UUID categoryPackId(String category) {
+        return UUID.nameUUIDFromBytes(("category:" + category).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Pack categoryPack(String category) {
+        Pack pack = packs.get(categoryPackId(category));
+        if (pack != null) {
+            return pack;
+        }
+        if (!audioRepository.existsByCategory(category)) {
+            throw new ResourceNotFoundException("Audio category", category);
+        }
+        return packs.computeIfAbsent(categoryPackId(category),
+                id -> load(new Pack(id, Kind.CATEGORY, category)));
+    }
+
+    private Pack playlistPack(UUID playlistId) {
+        Pack pack = packs.get(playlistId);
+        if (pack != null) {
+            return pack;
+        }
+        Playlist playlist = playlistRepository.findById(playlistId)
+                .orElseThrow(() -> new ResourceNotFoundException("Playlist", playlistId));
+        return packs.computeIfAbsent(playlistId, id -> load(new Pack(id, Kind.PLAYLIST, playlist.getName())));
+    }
+
+    private void markStale(UUID packId) {
+        Pack pack = packs.get(packId);
+        if (pack != null) {
+            pack.stale = true;
+        }
+    }
+
+    /**
+     * Brings the pack in line with its current membership and returns the index to serve.
+     */
+    private PackIndex sync(Pack pack) {
+        synchronized (pack) {
+            if (!pack.stale) {
+                return pack.index;
+            }
+            // Cleared before reading membership so a change committed meanwhile marks the pack stale again
+            pack.stale = false;
+            try {
+                List<Member> members = members(pack);
+                if (pack.kind == Kind.CATEGORY && members.isEmpty()) {
+                    deletePackFiles(pack.id, -1);
+                    packs.remove(pack.id, pack);
+                    throw new ResourceNotFoundException("Audio category", pack.name);
+                }
+                pack.index = update(pack, pack.index, members);
+                return pack.index;
+            } catch (RuntimeException e) {
+                pack.stale = true;
+                throw e;
+            }
+        }
+    }
+
+    private PackIndex update(Pack pack, PackIndex current, List<Member> members) {
+        Map<UUID, PackEntry> existing = current.entries().stream()
+                .collect(Collectors.toMap(PackEntry::id, Function.identity()));
+
+        List<PackEntry> kept = new ArrayList<>();
+        List<Member> added = new ArrayList<>();
+        long liveBytes = 0;
+        for (Member member : members) {
+            PackEntry entry = existing.get(member.audio().getId());
+            if (entry != null && entry.length() == member.size()
+                    && Objects.equals(entry.contentHash(), member.contentHash())) {
+                kept.add(entry.describing(member.audio()));
+            } else {
+                added.add(member);
+            }
+            liveBytes += member.size();
+        }
+        if (liveBytes > maxBytes.toBytes()) {
+            throw new IllegalArgumentException("Pack " + pack.name + " would be " + DataSize.ofBytes(liveBytes).toMegabytes()
+                    + "MB, over the " + maxBytes.toMegabytes() + "MB limit");
+        }
+        if (current.version() > 0 && added.isEmpty() && kept.equals(current.entries())) {
+            return current;
+        }
+
+        long deadBytes = current.length() - kept.stream().mapToLong(PackEntry::length).sum();
+        try {
+            PackIndex built = deadBytes > liveBytes
+                    ? compact(pack, current, kept, added)
+                    : append(pack, current, kept, added);
+            PackIndex next = built.withEntries(ordered(built.entries(), members));
+            writeIndex(pack.id, next);
+            log.info("Updated pack {} to version {}: {} tracks, {} bytes ({} appended)",
+                    pack.name, next.version(), next.entries().size(), next.length(), added.size());
+            return next;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to update pack " + pack.name, e);
+        }
+    }
+
+    /**
+     * Appends new tracks past the current end, leaving every byte a previous index points at untouched.
+     */
+    private PackIndex append(Pack pack, PackIndex current, List<PackEntry> kept, List<Member> added)
+            throws IOException {
+        Path file = dataPath(pack.id, current.generation());
+        Files.createDirectories(file.getParent());
+        long length = current.length();
+        List<PackEntry> entries = new ArrayList<>(kept);
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            for (Member member : added) {
+                audioStorage.transferTo(member.key(), 0, member.size(), out.position(length));
+                entries.add(PackEntry.of(member, length));
+                length += member.size();
+            }
+            out.force(false);
+        }
+        return new PackIndex(current.version() + 1, current.generation(), length, System.currentTimeMillis(), entries);
+    }
+
+    /**
+     * Writes live tracks into a fresh generation file and deletes the generation before the current one.
+     */
+    private PackIndex compact(Pack pack, PackIndex current, List<PackEntry> kept, List<Member> added)
+            throws IOException {
+        int generation = current.generation() + 1;
+        Path file = dataPath(pack.id, generation);
+        Files.createDirectories(file.getParent());
+        long length = 0;
+        List<PackEntry> entries = new ArrayList<>();
+        try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (!kept.isEmpty()) {
+                try (FileChannel in = FileChannel.open(dataPath(pack.id, current.generation()), StandardOpenOption.READ)) {
+                    for (PackEntry entry : kept) {
+                        copy(in, entry.offset(), entry.length(), out, length);
+                        entries.add(entry.at(length));
+                        length += entry.length();
+                    }
+                }
+            }
+            for (Member member : added) {
+                audioStorage.transferTo(member.key(), 0, member.size(), out.position(length));
+                entries.add(PackEntry.of(member, length));
+                length += member.size();
+            }
+            out.force(false);
+        }
+        deletePackFiles(pack.id, current.generation());
+        log.info("Compacted pack {} into generation {}, reclaiming {} bytes",
+                pack.name, generation, current.length() + sizeOf(added) - length);
+        return new PackIndex(current.version() + 1, generation, length, System.currentTimeMillis(), entries);
+    }
+
+    /**
+     * Lists entries in membership order, which the byte layout does not follow once tracks are appended.
+     */
+    private List<PackEntry> ordered(List<PackEntry> entries, List<Member> members) {
+        Map<UUID, PackEntry> byId = entries.stream().collect(Collectors.toMap(PackEntry::id, Function.identity()));
+        return members.stream().map(member -> byId.get(member.audio().getId())).toList();
+    }
+
+    private List<Member> members(Pack pack) {
+        List<Audio> tracks = switch (pack.kind) {
+            case CATEGORY -> audioRepository.findByCategoryOrderByUpdatedAtDesc(pack.name).reversed();
+            case PLAYLIST -> playlistTracks(pack.id);
+        };
+
+        List<Member> members = new ArrayList<>();
+        for (Audio audio : tracks) {
+            String key = audio.getFilePath();
+            try {
+                AudioStorage.StoredObject object = audioStorage.stat(key);
+                if (object != null) {
+                    members.add(new Member(audio, key, object.length()));
+                    continue;
+                }
+            } catch (IOException e) {
+                log.warn("Failed to look up audio file {}: {}", key, e.getMessage());
+            }
+            log.warn("Audio file missing from storage, leaving it out of pack {}: {}", pack.name, key);
+        }
+        return members;
+    }
+
+    private List<Audio> playlistTracks(UUID playlistId) {
+        if (!playlistRepository.existsById(playlistId)) {
+            throw new ResourceNotFoundException("Playlist", playlistId);
+        }
+        List<UUID> trackIds = playlistTrackRepository.findAudioIdsByPlaylistId(playlistId);
+
+        Map<UUID, Audio> byId = audioRepository.findAllById(trackIds).stream()
+                .collect(Collectors.toMap(Audio::getId, Function.identity()));
+        return new LinkedHashSet<>(trackIds).stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Restores a pack's index from disk. It starts out stale, since tracks may have changed while it was not loaded.
+     */
+    private Pack load(Pack pack) {
+        Path indexPath = indexPath(pack.id);
+        if (!Files.exists(indexPath)) {
+            return pack;
+        }
+        try {
+            PackIndex index = objectMapper.readValue(indexPath.toFile(), PackIndex.class);
+            Path data = dataPath(pack.id, index.generation());
+            if (Files.exists(data) && Files.size(data) >= index.length()) {
+                pack.index = index;
+            } else {
+                log.warn("Pack {} data file is missing or truncated, rebuilding", pack.name);
+                pack.index = new PackIndex(index.version(), index.generation() + 1, 0, 0, List.of());
+            }
+        } catch (IOException e) {
+            log.warn("Failed to read pack index {}, rebuilding", indexPath, e);
+        }
+        return pack;
+    }
+
+    private void writeIndex(UUID packId, PackIndex index) throws IOException {
+        Path target = indexPath(packId);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        objectMapper.writeValue(temp.toFile(), index);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Deletes a pack's data files older than {@code keepFrom}, or all its files when {@code keepFrom} is negative.
+     */
+    private void deletePackFiles(UUID packId, int keepFrom) {
+        String prefix = packId + ".";
+        if (!Files.isDirectory(packRoot())) {
+            return;
+        }
+        try (var files = Files.list(packRoot())) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (!name.startsWith(prefix)) {
+                    continue;
+                }
+                if (keepFrom >= 0) {
+                    if (!name.endsWith(".pack")) {
+                        continue;
+                    }
+                    int generation = Integer.parseInt(name.substring(prefix.length(), name.length() - ".pack".length()));
+                    if (generation >= keepFrom) {
+                        continue;
+                    }
+                }
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Failed to delete old files of pack {}", packId, e);
+        }
+    }
+
+    private Path packRoot() {
+        return Paths.get(uploadDir, "packs");
+    }
+
+    private Path dataPath(UUID packId, int generation) {
+        return packRoot().resolve(packId + "." + generation + ".pack");
+    }
+
+    private Path indexPath(UUID packId) {
+        return packRoot().resolve(packId + ".json");
+    }
+
+    private static void copy(FileChannel in, long position, long count, FileChannel out, long target)
+            throws IOException {
+        long done = 0;
+        while (done < count) {
+            long sent = in.transferTo(position + done, count - done, out.position(target + done));
+            if (sent <= 0) {
+                throw new IOException("Unexpected end of file at offset " + (position + done));
+            }
+            done += sent;
+        }
+    }
+
+    private static long sizeOf(List<Member> members) {
+        return members.stream().mapToLong(Member::size).sum();
+    }
+
+    private AudioPackDTO toDTO(Pack pack, PackIndex index) {
+        return new AudioPackDTO(
+                pack.id,
+                pack.name,
+                index.version(),
+                index.length(),
+                index.entries().stream()
+                        .map(entry -> new AudioPackDTO.Entry(entry.id(), entry.name(), entry.contentType(),
+                                entry.durationSeconds(), entry.offset(), entry.length()))
+                        .toList()
+        );
+    }
+
+    private StreamSource toStreamSource(Pack pack, PackIndex index) {
+        return new StreamSource(
+                pack.id,
+                null,
+                dataPath(pack.id, index.generation()),
+                pack.name + ".pack",
+                "application/octet-stream",
+                null,
+                index.length(),
+                index.modifiedAt(),
+                "\"" + pack.id + "-" + index.version() + "\"",
+                null
+        );
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private enum Kind {
+        CATEGORY,
+        PLAYLIST
+    }
+
+    private static final class Pack {
+        private final UUID id;
+        private final Kind kind;
+        // Category name, or playlist name at load time
+        private final String name;
+        private volatile PackIndex index = new PackIndex(0, 0, 0, 0, List.of());
+        private volatile boolean stale = true;
+
+        private Pack(UUID id, Kind kind, String name) {
+            this.id = id;
+            this.kind = kind;
+            this.name = name;
+        }
+    }
+
+    private record Member(Audio audio, String key, long size) {
+        @Nullable
+        String contentHash() {
+            return audio.getContentHash() != null ? audio.getContentHash() : audio.getFileName();
+        }
+    }
+
+    /**
+     * On-disk index; {@code length} is the end of the bytes it covers in the generation's data file.
+     */
+    record PackIndex(long version, int generation, long length, long modifiedAt, List<PackEntry> entries) {
+        PackIndex withEntries(List<PackEntry> newEntries) {
+            return new PackIndex(version, generation, length, modifiedAt, newEntries);
+        }
+    }
+
+    record PackEntry(
+            UUID id,
+            String name,
+            String contentType,
+            Long durationSeconds,
+            @Nullable String contentHash,
+            long offset,
+            long length
+    ) {
+        static PackEntry of(Member member, long offset) {
+            Audio audio = member.audio();
+            return new PackEntry(audio.getId(), audio.getName(), audio.getContentType(), audio.getDurationSeconds(),
+                    member.contentHash(), offset, member.size());
+        }
+
+        PackEntry at(long newOffset) {
+            return new PackEntry(id, name, contentType, durationSeconds, contentHash, newOffset, length);
+        }
+
+        PackEntry describing(Audio audio) {
+            return new PackEntry(id, audio.getName(), audio.getContentType(), audio.getDurationSeconds(),
+                    contentHash, offset, length);
+        }
+    }
+}
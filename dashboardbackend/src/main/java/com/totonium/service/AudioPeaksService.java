@@ -0,0 +1,352 @@
+package com.totonium.service;
+
+import com.totonium.entity.Audio;
+import com.totonium.exception.ResourceNotFoundException;
+import com.totonium.repository.AudioRepository;
+import com.totonium.service.AudioService.StreamSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.stereotype.Service;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Waveform peaks for uncompressed tracks, so the UI can draw a scrubber without downloading and decoding the file.
+ * <p>
+ * Peaks are computed once per blob at ingest, for WAV and AIFF files whose PCM format {@link AudioSystem} reads,
+ * and stored next to the blob under {@code peaks/<first two hex digits>/<sha-256>}. The samples are read through
+ * memory-mapped windows of the file, so memory use does not grow with the file.
+ * <p>
+ * The sidecar is big-endian: the magic {@code PEAK}, a version byte, the level count, the channel count (u16),
+ * the sample rate (u32) and the frame count (u64); then per level its frames per peak (u32) and peak count (u32);
+ * then each level's peaks as (min, max) pairs of 16-bit samples, with all channels folded together. Level 0 has
+ * at least {@value #BASE_FRAMES_PER_PEAK} frames per peak and each further level four times as many.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AudioPeaksService {
+
+    static final String PEAKS_PREFIX = "peaks/";
+    private static final String CONTENT_TYPE = "application/octet-stream";
+    private static final byte FORMAT_VERSION = 1;
+    private static final int BASE_FRAMES_PER_PEAK = 256;
+    private static final int MAX_BASE_PEAKS = 1 << 20;
+    private static final int LEVEL_FACTOR = 4;
+    private static final int MIN_LEVEL_PEAKS = 256;
+    private static final int MAX_LEVELS = 16;
+    private static final long WINDOW_BYTES = 32L * 1024 * 1024;
+
+    private final AudioRepository audioRepository;
+    private final AudioBlobService audioBlobService;
+    private final AudioStorage audioStorage;
+
+    public static String peaksKey(String contentHash) {
+        return PEAKS_PREFIX + contentHash.substring(0, 2) + "/" + contentHash;
+    }
+
+    /**
+     * Computes and stores the peaks of a staged upload. Files that are not PCM WAV/AIFF are skipped.
+     *
+     * @return whether peaks were stored
+     */
+    public boolean generate(Path file, String contentHash) {
+        Path temp = null;
+        try {
+            temp = audioBlobService.createTempFile();
+            if (!write(file, temp)) {
+                return false;
+            }
+            audioStorage.put(peaksKey(contentHash), temp);
+            log.debug("Stored waveform peaks for {}", contentHash);
+            return true;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to compute waveform peaks for {}: {}", contentHash, e.getMessage());
+            return false;
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    log.warn("Failed to delete staging file: {}", temp, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Resolves a track's peaks sidecar. Blobs stored before peaks existed get theirs computed on first request when
+     * the file is on this node.
+     */
+    public StreamSource findPeaksSource(UUID audioId) {
+        Audio audio = audioRepository.findById(audioId)
+                .orElseThrow(() -> new ResourceNotFoundException("Audio", audioId));
+        String contentHash = audio.getContentHash();
+        if (contentHash == null) {
+            throw new ResourceNotFoundException("Audio peaks", audioId);
+        }
+
+        String key = peaksKey(contentHash);
+        AudioStorage.StoredObject object = stat(key);
+        if (object == null) {
+            Path blob = audioStorage.localPath(audio.getFilePath());
+            if (blob != null && Files.isRegularFile(blob) && generate(blob, contentHash)) {
+                object = stat(key);
+            }
+        }
+        if (object == null) {
+            throw new ResourceNotFoundException("Audio peaks", audioId);
+        }
+
+        return new StreamSource(
+                audio.getId(),
+                key,
+                audioStorage.localPath(key),
+                contentHash + ".peaks",
+                CONTENT_TYPE,
+                audio.getCategory(),
+                object.length(),
+                object.lastModified(),
+                "\"" + contentHash + ".peaks-v" + FORMAT_VERSION + "\"",
+                null
+        );
+    }
+
+    private AudioStorage.@Nullable StoredObject stat(String key) {
+        try {
+            return audioStorage.stat(key);
+        } catch (IOException e) {
+            log.warn("Failed to look up waveform peaks {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Writes the sidecar for {@code file} to {@code target}.
+     *
+     * @return false if the file is not a PCM format this reads
+     */
+    private static boolean write(Path file, Path target) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            SampleRegion region = locateSamples(channel);
+            if (region == null) {
+                return false;
+            }
+
+            AudioFormat format;
+            try {
+                AudioFileFormat fileFormat = AudioSystem.getAudioFileFormat(file.toFile());
+                format = fileFormat.getFormat();
+            } catch (UnsupportedAudioFileException e) {
+                return false;
+            }
+            SampleReader reader = SampleReader.of(format);
+            if (reader == null) {
+                return false;
+            }
+
+            int frameSize = format.getFrameSize();
+            long frames = region.length() / frameSize;
+            int framesPerPeak = BASE_FRAMES_PER_PEAK;
+            while (frames / framesPerPeak > MAX_BASE_PEAKS) {
+                framesPerPeak *= 2;
+            }
+
+            List<Level> levels = new ArrayList<>();
+            levels.add(computeBaseLevel(channel, region, frames, format, reader, framesPerPeak));
+            while (levels.size() < MAX_LEVELS && levels.getLast().mins().length > MIN_LEVEL_PEAKS) {
+                levels.add(levels.getLast().coarser());
+            }
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(target)))) {
+                out.write("PEAK".getBytes(StandardCharsets.US_ASCII));
+                out.writeByte(FORMAT_VERSION);
+                out.writeByte(levels.size());
+                out.writeShort(format.getChannels());
+                out.writeInt(Math.round(format.getSampleRate()));
+                out.writeLong(frames);
+                for (Level level : levels) {
+                    out.writeInt(level.framesPerPeak());
+                    out.writeInt(level.mins().length);
+                }
+                for (Level level : levels) {
+                    for (int i = 0; i < level.mins().length; i++) {
+                        out.writeShort(level.mins()[i]);
+                        out.writeShort(level.maxs()[i]);
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    private static Level computeBaseLevel(FileChannel channel, SampleRegion region, long frames, AudioFormat format,
+                                          SampleReader reader, int framesPerPeak) throws IOException {
+        int channels = format.getChannels();
+        int frameSize = format.getFrameSize();
+        int bytesPerSample = frameSize / channels;
+        int peaks = (int) ((frames + framesPerPeak - 1) / framesPerPeak);
+        short[] mins = new short[peaks];
+        short[] maxs = new short[peaks];
+        ByteOrder order = format.isBigEndian() ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+        long windowBytes = WINDOW_BYTES / frameSize * frameSize;
+
+        int peak = 0;
+        int inPeak = 0;
+        int min = Short.MAX_VALUE;
+        int max = Short.MIN_VALUE;
+        long dataBytes = frames * frameSize;
+        for (long offset = 0; offset < dataBytes; offset += windowBytes) {
+            int length = (int) Math.min(windowBytes, dataBytes - offset);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, region.offset() + offset, length);
+            window.order(order);
+            for (int frame = 0; frame < length; frame += frameSize) {
+                for (int sample = frame; sample < frame + frameSize; sample += bytesPerSample) {
+                    int value = reader.read(window, sample);
+                    if (value < min) {
+                        min = value;
+                    }
+                    if (value > max) {
+                        max = value;
+                    }
+                }
+                if (++inPeak == framesPerPeak) {
+                    mins[peak] = (short) min;
+                    maxs[peak] = (short) max;
+                    peak++;
+                    inPeak = 0;
+                    min = Short.MAX_VALUE;
+                    max = Short.MIN_VALUE;
+                }
+            }
+        }
+        if (inPeak > 0) {
+            mins[peak] = (short) min;
+            maxs[peak] = (short) max;
+        }
+        return new Level(framesPerPeak, mins, maxs);
+    }
+
+    /**
+     * Finds the sample data of a WAV ({@code data} chunk) or AIFF/AIFC ({@code SSND} chunk) file.
+     */
+    private static @Nullable SampleRegion locateSamples(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer head = AudioProbe.readAt(channel, 0, 12);
+        if (head.remaining() < 12) {
+            return null;
+        }
+        boolean wav = AudioProbe.matches(head, 0, "RIFF") && AudioProbe.matches(head, 8, "WAVE");
+        boolean aiff = AudioProbe.matches(head, 0, "FORM") && (AudioProbe.matches(head, 8, "AIFF") || AudioProbe.matches(head, 8, "AIFC"));
+        if (!wav && !aiff) {
+            return null;
+        }
+
+        long position = 12;
+        while (position + 8 <= size) {
+            ByteBuffer chunk = AudioProbe.readAt(channel, position, 8)
+                    .order(wav ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+            if (chunk.remaining() < 8) {
+                break;
+            }
+            long chunkSize = chunk.getInt(4) & 0xFFFFFFFFL;
+            long available = size - position - 8;
+            if (wav && AudioProbe.matches(chunk, 0, "data")) {
+                // Streaming writers leave the size at 0 or 0xFFFFFFFF; the data then runs to the end of the file
+                return new SampleRegion(position + 8, chunkSize == 0 || chunkSize > available ? available : chunkSize);
+            }
+            if (aiff && AudioProbe.matches(chunk, 0, "SSND")) {
+                long skip = AudioProbe.readAt(channel, position + 8, 4).getInt(0) & 0xFFFFFFFFL;
+                long start = position + 16 + skip;
+                return new SampleRegion(start, Math.max(0, Math.min(chunkSize - 8 - skip, size - start)));
+            }
+            position += 8 + chunkSize + (chunkSize & 1);
+        }
+        return null;
+    }
+
+    private record SampleRegion(long offset, long length) {
+    }
+
+    private record Level(int framesPerPeak, short[] mins, short[] maxs) {
+
+        Level coarser() {
+            int peaks = (mins.length + LEVEL_FACTOR - 1) / LEVEL_FACTOR;
+            short[] coarserMins = new short[peaks];
+            short[] coarserMaxs = new short[peaks];
+            for (int i = 0; i < peaks; i++) {
+                short min = Short.MAX_VALUE;
+                short max = Short.MIN_VALUE;
+                for (int j = i * LEVEL_FACTOR; j < Math.min(mins.length, (i + 1) * LEVEL_FACTOR); j++) {
+                    min = (short) Math.min(min, mins[j]);
+                    max = (short) Math.max(max, maxs[j]);
+                }
+                coarserMins[i] = min;
+                coarserMaxs[i] = max;
+            }
+            return new Level(framesPerPeak * LEVEL_FACTOR, coarserMins, coarserMaxs);
+        }
+    }
+
+    /**
+     * Reads one sample, scaled to the 16-bit range, from a buffer already set to the format's byte order.
+     */
+    @FunctionalInterface
+    private interface SampleReader {
+
+        int read(ByteBuffer buffer, int index);
+
+        static @Nullable SampleReader of(AudioFormat format) {
+            AudioFormat.Encoding encoding = format.getEncoding();
+            int bits = format.getSampleSizeInBits();
+            if (format.getChannels() < 1 || format.getFrameSize() != format.getChannels() * ((bits + 7) / 8)) {
+                return null;
+            }
+            boolean bigEndian = format.isBigEndian();
+            if (AudioFormat.Encoding.PCM_SIGNED.equals(encoding)) {
+                return switch (bits) {
+                    case 8 -> (buffer, index) -> buffer.get(index) << 8;
+                    case 16 -> ByteBuffer::getShort;
+                    case 24 -> bigEndian
+                            ? (buffer, index) -> (buffer.get(index) << 8) | (buffer.get(index + 1) & 0xFF)
+                            : (buffer, index) -> (buffer.get(index + 2) << 8) | (buffer.get(index + 1) & 0xFF);
+                    case 32 -> (buffer, index) -> buffer.getInt(index) >> 16;
+                    default -> null;
+                };
+            }
+            if (AudioFormat.Encoding.PCM_UNSIGNED.equals(encoding) && bits == 8) {
+                return (buffer, index) -> ((buffer.get(index) & 0xFF) - 128) << 8;
+            }
+            if (AudioFormat.Encoding.PCM_FLOAT.equals(encoding)) {
+                return switch (bits) {
+                    case 32 -> (buffer, index) -> toShort(buffer.getFloat(index));
+                    case 64 -> (buffer, index) -> toShort(buffer.getDouble(index));
+                    default -> null;
+                };
+            }
+            return null;
+        }
+
+        private static int toShort(double sample) {
+            return (int) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(sample * Short.MAX_VALUE)));
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.totonium.service;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Reads audio durations from container headers with positioned reads, without decoding any audio.
+ * <p>
+ * Supports MP4/M4A (mvhd), WAV (fmt + data chunk), Ogg Vorbis/Opus (last page granule), FLAC (STREAMINFO) and
+ * MPEG audio (Xing/Info or VBRI header, otherwise a constant-bitrate estimate or, for VBR files without a header,
+ * a scan of frame headers).
+ */
+public final class AudioProbe {
+
+    public record Result(String format, double durationSeconds) {
+    }
+
+    private static final int MP3_SYNC_WINDOW = 64 * 1024;
+    private static final int MP3_SCAN_BUFFER = 256 * 1024;
+    private static final int MP3_CBR_SAMPLE_FRAMES = 32;
+    // Frame header, the longest side info (32 bytes), then room for the 26-byte fixed part of a VBRI header,
+    // which also covers the flags and frame count of a Xing header after shorter side info
+    private static final int MP3_VBR_HEADER_WINDOW = 4 + 32 + 26;
+    // Largest possible Ogg page: 27-byte header, 255 lacing values, 255 * 255 bytes of payload
+    private static final int OGG_TAIL_WINDOW = 27 + 255 + 255 * 255;
+
+    private AudioProbe() {
+    }
+
+    public static Optional<Result> probe(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer head = readAt(channel, 0, 12);
+            if (head.remaining() < 12) {
+                return Optional.empty();
+            }
+
+            if (matches(head, 4, "ftyp")) {
+                return probeMp4(channel, size);
+            }
+            if (matches(head, 0, "RIFF") && matches(head, 8, "WAVE")) {
+                return probeWav(channel, size);
+            }
+            if (matches(head, 0, "OggS")) {
+                return probeOgg(channel, size);
+            }
+            if (matches(head, 0, "fLaC")) {
+                return probeFlac(channel);
+            }
+            return probeMpegAudio(channel, size);
+        }
+    }
+
+    private static Optional<Result> probeMp4(FileChannel channel, long size) throws IOException {
+        Mp4Box moov = Mp4Box.find(channel, 0, size, "moov");
+        Mp4Box mvhd = moov != null ? Mp4Box.find(channel, moov.bodyStart(), moov.end(), "mvhd") : null;
+        if (mvhd == null) {
+            return Optional.empty();
+        }
+
+        ByteBuffer body = readAt(channel, mvhd.bodyStart(), 32);
+        long timescale;
+        long duration;
+        if (body.get(0) == 1) {
+            timescale = body.getInt(20) & 0xFFFFFFFFL;
+            duration = body.getLong(24);
+        } else {
+            timescale = body.getInt(12) & 0xFFFFFFFFL;
+            duration = body.getInt(16) & 0xFFFFFFFFL;
+        }
+        if (timescale == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new Result("mp4", (double) duration / timescale));
+    }
+
+    private static Optional<Result> probeWav(FileChannel channel, long size) throws IOException {
+        long byteRate = 0;
+        long dataSize = -1;
+        long position = 12;
+        while (position + 8 <= size && (byteRate == 0 || dataSize < 0)) {
+            ByteBuffer chunk = readAt(channel, position, 8).order(ByteOrder.LITTLE_ENDIAN);
+            if (chunk.remaining() < 8) {
+                break;
+            }
+            long chunkSize = chunk.getInt(4) & 0xFFFFFFFFL;
+            if (matches(chunk, 0, "fmt ")) {
+                byteRate = readAt(channel, position + 8, 16).order(ByteOrder.LITTLE_ENDIAN).getInt(8) & 0xFFFFFFFFL;
+            } else if (matches(chunk, 0, "data")) {
+                // Streaming writers leave the size at 0 or 0xFFFFFFFF; the data then runs to the end of the file
+                long available = size - position - 8;
+                dataSize = chunkSize == 0 || chunkSize > available ? available : chunkSize;
+            }
+            position += 8 + chunkSize + (chunkSize & 1);
+        }
+        if (byteRate == 0 || dataSize < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new Result("wav", (double) dataSize / byteRate));
+    }
+
+    private static Optional<Result> probeOgg(FileChannel channel, long size) throws IOException {
+        ByteBuffer firstPage = readAt(channel, 0, 27 + 255).order(ByteOrder.LITTLE_ENDIAN);
+        int serial = firstPage.getInt(14);
+        int payloadStart = 27 + (firstPage.get(26) & 0xFF);
+        ByteBuffer id = readAt(channel, payloadStart, 20).order(ByteOrder.LITTLE_ENDIAN);
+
+        long sampleRate;
+        long preSkip = 0;
+        if (id.remaining() >= 16 && id.get(0) == 1 && matches(id, 1, "vorbis")) {
+            sampleRate = id.getInt(12) & 0xFFFFFFFFL;
+        } else if (id.remaining() >= 12 && matches(id, 0, "OpusHead")) {
+            // Opus granule positions always count 48 kHz samples
+            sampleRate = 48000;
+            preSkip = id.getShort(10) & 0xFFFF;
+        } else {
+            return Optional.empty();
+        }
+        if (sampleRate == 0) {
+            return Optional.empty();
+        }
+
+        long windowStart = Math.max(0, size - OGG_TAIL_WINDOW);
+        ByteBuffer tail = readAt(channel, windowStart, (int) (size - windowStart)).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = tail.limit() - 27; i >= 0; i--) {
+            if (!matches(tail, i, "OggS") || tail.getInt(i + 14) != serial) {
+                continue;
+            }
+            long granule = tail.getLong(i + 6);
+            if (granule >= 0) {
+                return Optional.of(new Result("ogg", (double) Math.max(0, granule - preSkip) / sampleRate));
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<Result> probeFlac(FileChannel channel) throws IOException {
+        // STREAMINFO is always the first metadata block; its body starts at offset 8
+        ByteBuffer info = readAt(channel, 8 + 10, 8);
+        if (info.remaining() < 8) {
+            return Optional.empty();
+        }
+        long packed = info.getLong(0);
+        long sampleRate = (packed >>> 44) & 0xFFFFF;
+        long totalSamples = packed & 0xFFFFFFFFFL;
+        if (sampleRate == 0 || totalSamples == 0) {
+            return Optional.empty();
+        }
+        return Optional.of(new Result("flac", (double) totalSamples / sampleRate));
+    }
+
+    private static Optional<Result> probeMpegAudio(FileChannel channel, long size) throws IOException {
+        long audioStart = 0;
+        ByteBuffer id3 = readAt(channel, 0, 10);
+        if (matches(id3, 0, "ID3")) {
+            int tagSize = (id3.get(6) & 0x7F) << 21 | (id3.get(7) & 0x7F) << 14 | (id3.get(8) & 0x7F) << 7 | (id3.get(9) & 0x7F);
+            boolean footer = (id3.get(5) & 0x10) != 0;
+            audioStart = 10 + tagSize + (footer ? 10 : 0);
+        }
+        long audioEnd = size;
+        if (size >= 128 && matches(readAt(channel, size - 128, 3), 0, "TAG")) {
+            audioEnd -= 128;
+        }
+
+        ByteBuffer window = readAt(channel, audioStart, MP3_SYNC_WINDOW);
+        FrameHeader first = null;
+        int offset = 0;
+        for (; offset + 4 <= window.limit(); offset++) {
+            FrameHeader candidate = FrameHeader.parse(window.getInt(offset));
+            // Require the following frame to sync as well, so stray 0xFFE bytes in tags are not taken for audio
+            if (candidate != null && (offset + candidate.length() + 4 > window.limit()
+                    || FrameHeader.parse(window.getInt(offset + candidate.length())) != null)) {
+                first = candidate;
+                break;
+            }
+        }
+        if (first == null) {
+            return Optional.empty();
+        }
+        long frameStart = audioStart + offset;
+
+        ByteBuffer frame = readAt(channel, frameStart, MP3_VBR_HEADER_WINDOW);
+        int xing = 4 + first.sideInfoLength();
+        if (frame.limit() >= xing + 12 && (matches(frame, xing, "Xing") || matches(frame, xing, "Info"))
+                && (frame.getInt(xing + 4) & 1) != 0) {
+            long frames = frame.getInt(xing + 8) & 0xFFFFFFFFL;
+            return Optional.of(new Result("mp3", (double) frames * first.samplesPerFrame() / first.sampleRate()));
+        }
+        if (frame.limit() >= 4 + 32 + 18 && matches(frame, 4 + 32, "VBRI")) {
+            long frames = frame.getInt(4 + 32 + 14) & 0xFFFFFFFFL;
+            return Optional.of(new Result("mp3", (double) frames * first.samplesPerFrame() / first.sampleRate()));
+        }
+
+        FrameScan sample = scanFrames(channel, frameStart, audioEnd, MP3_CBR_SAMPLE_FRAMES);
+        if (sample.constantBitrate()) {
+            double seconds = (audioEnd - frameStart) * 8.0 / (first.bitrateKbps() * 1000.0);
+            return Optional.of(new Result("mp3", seconds));
+        }
+
+        FrameScan full = scanFrames(channel, frameStart, audioEnd, Long.MAX_VALUE);
+        return Optional.of(new Result("mp3", (double) full.samples() / first.sampleRate()));
+    }
+
+    private record FrameScan(long frames, long samples, boolean constantBitrate) {
+    }
+
+    /**
+     * Walks frame headers from {@code start}, reading the file in large sequential blocks.
+     */
+    private static FrameScan scanFrames(FileChannel channel, long start, long end, long maxFrames) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(0);
+        long bufferStart = start;
+        long position = start;
+        long frames = 0;
+        long samples = 0;
+        int bitrate = -1;
+        boolean constant = true;
+
+        while (position + 4 <= end && frames < maxFrames) {
+            if (position + 4 > bufferStart + buffer.limit()) {
+                buffer = readAt(channel, position, MP3_SCAN_BUFFER);
+                bufferStart = position;
+                if (buffer.limit() < 4) {
+                    break;
+                }
+            }
+            FrameHeader header = FrameHeader.parse(buffer.getInt((int) (position - bufferStart)));
+            if (header == null) {
+                break;
+            }
+            if (bitrate < 0) {
+                bitrate = header.bitrateKbps();
+            } else if (bitrate != header.bitrateKbps()) {
+                constant = false;
+            }
+            frames++;
+            samples += header.samplesPerFrame();
+            position += header.length();
+        }
+        return new FrameScan(frames, samples, constant);
+    }
+
+    private record FrameHeader(boolean mpeg1, boolean mono, int bitrateKbps, int sampleRate,
+                               int samplesPerFrame, int length) {
+
+        private static final int[][] BITRATES = {
+                {32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448}, // MPEG-1 Layer I
+                {32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},    // MPEG-1 Layer II
+                {32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},     // MPEG-1 Layer III
+                {32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},    // MPEG-2/2.5 Layer I
+                {8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}          // MPEG-2/2.5 Layer II & III
+        };
+        private static final int[][] SAMPLE_RATES = {
+                {11025, 12000, 8000},  // MPEG-2.5
+                {},
+                {22050, 24000, 16000}, // MPEG-2
+                {44100, 48000, 32000}  // MPEG-1
+        };
+
+        static @Nullable FrameHeader parse(int header) {
+            if ((header >>> 21 & 0x7FF) != 0x7FF) {
+                return null;
+            }
+            int version = header >>> 19 & 3;
+            int layerBits = header >>> 17 & 3;
+            int bitrateIndex = header >>> 12 & 0xF;
+            int sampleRateIndex = header >>> 10 & 3;
+            if (version == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+                return null;
+            }
+
+            boolean mpeg1 = version == 3;
+            int layer = 4 - layerBits;
+            int table = mpeg1 ? layer - 1 : (layer == 1 ? 3 : 4);
+            int bitrate = BITRATES[table][bitrateIndex - 1];
+            int sampleRate = SAMPLE_RATES[version][sampleRateIndex];
+            int padding = header >>> 9 & 1;
+            boolean mono = (header >>> 6 & 3) == 3;
+
+            int samplesPerFrame = layer == 1 ? 384 : (layer == 3 && !mpeg1 ? 576 : 1152);
+            int length = layer == 1
+                    ? (12 * bitrate * 1000 / sampleRate + padding) * 4
+                    : samplesPerFrame / 8 * bitrate * 1000 / sampleRate + padding;
+            return new FrameHeader(mpeg1, mono, bitrate, sampleRate, samplesPerFrame, length);
+        }
+
+        int sideInfoLength() {
+            return mpeg1 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+        }
+    }
+
+    /**
+     * Reads up to {@code length} bytes at {@code position}; the result is shorter only at end of file.
+     */
+    static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.flip();
+    }
+
+    static boolean matches(ByteBuffer buffer, int offset, String ascii) {
+        byte[] expected = ascii.getBytes(StandardCharsets.ISO_8859_1);
+        if (offset < 0 || offset + expected.length > buffer.limit()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(offset + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
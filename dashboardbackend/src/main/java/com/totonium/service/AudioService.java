@@ -4,19 +4,32 @@ import com.totonium.dto.AudioDTO;
 import com.totonium.entity.Audio;
 import com.totonium.exception.ResourceNotFoundException;
 import com.totonium.repository.AudioRepository;
+import com.totonium.repository.PlaylistTrackRepository;
+import com.totonium.service.AudioBlobService.StoredBlob;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
+import org.jspecify.annotations.Nullable;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,9 +38,13 @@ import java.util.stream.Collectors;
 public class AudioService {
 
     private final AudioRepository audioRepository;
-
-    @Value("${app.audio.upload-dir:uploads/audio}")
-    private String uploadDir;
+    private final PlaylistTrackRepository playlistTrackRepository;
+    private final AudioBlobService audioBlobService;
+    private final AudioStorage audioStorage;
+    private final AudioMetadataService audioMetadataService;
+    private final AudioCacheService audioCacheService;
+    private final AudioPackService audioPackService;
+    private final AudioPeaksService audioPeaksService;
 
     @Transactional(readOnly = true)
     public List<AudioDTO> findAllTracks() {
@@ -46,60 +63,222 @@ public class AudioService {
     @Transactional
     public AudioDTO upload(MultipartFile file, String name, String category) {
         try {
-            Path uploadPath = Paths.get(uploadDir);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-            }
+            Path tempFile = audioBlobService.createTempFile();
+            try {
+                MessageDigest digest = AudioBlobService.newContentDigest();
+                long size;
+                try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                    size = Files.copy(in, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                }
 
-            String originalFilename = file.getOriginalFilename();
-            String extension = "";
-            if (originalFilename != null && originalFilename.contains(".")) {
-                extension = originalFilename.substring(originalFilename.lastIndexOf("."));
+                String uploadHash = HexFormat.of().formatHex(digest.digest());
+                StoredBlob blob = storeStagedFile(tempFile, uploadHash, size);
+                AudioDTO saved = registerStoredFile(name, blob.key(), file.getContentType(), blob.size(), category,
+                        blob.contentHash());
+                log.info("Uploaded audio: {} -> {}", name, blob.contentHash());
+                return saved;
+            } finally {
+                Files.deleteIfExists(tempFile);
             }
 
-            String storedFileName = UUID.randomUUID().toString() + extension;
-            Path filePath = uploadPath.resolve(storedFileName);
-            Files.copy(file.getInputStream(), filePath);
-
-            Audio audio = Audio.builder()
-                    .name(name)
-                    .fileName(storedFileName)
-                    .filePath(filePath.toString())
-                    .contentType(file.getContentType())
-                    .fileSize(file.getSize())
-                    .category(category != null ? category : "sfx")
-                    .build();
-
-            Audio saved = audioRepository.save(audio);
-            log.info("Uploaded audio: {} -> {}", name, storedFileName);
-            return toDTO(saved);
-
         } catch (IOException e) {
             log.error("Failed to upload audio: {}", name, e);
             throw new RuntimeException("Failed to upload audio file", e);
         }
     }
 
+    /**
+     * Creates the Audio row for content already held by the blob store. The caller owns one blob reference,
+     * which this row takes over. The duration is read from the file's container headers.
+     */
+    @Transactional
+    public AudioDTO registerStoredFile(String name, String blobKey, String contentType,
+                                      long size, String category, String contentHash) {
+        Audio audio = Audio.builder()
+                .name(name)
+                .fileName(contentHash)
+                .filePath(blobKey)
+                .contentType(contentType != null ? contentType : "application/octet-stream")
+                .fileSize(size)
+                .contentHash(contentHash)
+                .durationSeconds(audioMetadataService.probeDurationSeconds(blobKey))
+                .category(category != null ? category : "sfx")
+                .build();
+
+        Audio saved = audioRepository.save(audio);
+        audioPackService.categoryChangedAfterCommit(saved.getCategory());
+        return toDTO(saved);
+    }
+
+    /**
+     * Ingest stage run on a fully received upload: moves it into the blob store and takes a reference for the
+     * caller, or only the reference when the upload is already stored. MP4/M4A files with the moov atom at the end
+     * are rewritten with moov first so playback can start from the first range request, and stored under the
+     * hash of the rewritten bytes; the upload hash is kept on the blob so re-uploading the original still
+     * deduplicates. Waveform peaks are computed for PCM WAV/AIFF files (see {@link AudioPeaksService}).
+     *
+     * @param uploadHash hash of the staged file as uploaded
+     * @param size       size of the staged file as uploaded
+     */
+    public StoredBlob storeStagedFile(Path stagedFile, String uploadHash, long size) throws IOException {
+        Optional<StoredBlob> stored = audioBlobService.acquire(uploadHash, size);
+        if (stored.isPresent()) {
+            Files.deleteIfExists(stagedFile);
+            log.info("Deduplicated upload {} against blob {}", uploadHash, stored.get().contentHash());
+            return stored.get();
+        }
+
+        String contentHash = uploadHash;
+        if (faststart(stagedFile, uploadHash)) {
+            contentHash = AudioBlobService.hash(stagedFile);
+        }
+        long storedSize = Files.size(stagedFile);
+        if (!audioBlobService.isStored(contentHash, storedSize)) {
+            audioPeaksService.generate(stagedFile, contentHash);
+        }
+        return audioBlobService.store(stagedFile, contentHash, storedSize, uploadHash);
+    }
+
+    /**
+     * @return whether the file was rewritten
+     */
+    private boolean faststart(Path stagedFile, String uploadHash) {
+        Path rewritten = null;
+        try {
+            rewritten = audioBlobService.createTempFile();
+            if (Mp4Faststart.rewrite(stagedFile, rewritten)) {
+                Files.move(rewritten, stagedFile, StandardCopyOption.ATOMIC_MOVE);
+                log.info("Moved moov atom to the front of {}", uploadHash);
+                return true;
+            }
+            return false;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Faststart rewrite failed for {}, storing as uploaded: {}", uploadHash, e.getMessage());
+            return false;
+        } finally {
+            if (rewritten != null) {
+                try {
+                    Files.deleteIfExists(rewritten);
+                } catch (IOException e) {
+                    log.warn("Failed to delete staging file: {}", rewritten, e);
+                }
+            }
+        }
+    }
+
     @Transactional
     public void delete(UUID id) {
         Audio audio = audioRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Audio", id));
 
+        int playlistEntries = playlistTrackRepository.deleteByAudioId(id);
+        audioRepository.delete(audio);
+        audioCacheService.evictAfterCommit(id);
+        audioPackService.categoryChangedAfterCommit(audio.getCategory());
+        audioPackService.playlistsChangedAfterCommit();
+        if (audio.getContentHash() != null) {
+            audioBlobService.releaseAfterCommit(audio.getContentHash());
+        } else {
+            try {
+                Files.deleteIfExists(Paths.get(audio.getFilePath()));
+            } catch (IOException e) {
+                log.warn("Failed to delete audio file: {}", audio.getFilePath(), e);
+            }
+        }
+        log.info("Deleted audio: {} (removed from {} playlist entries)", id, playlistEntries);
+    }
+
+    /**
+     * Resolves everything needed to serve a track's bytes with a single lookup.
+     */
+    @Transactional(readOnly = true)
+    public StreamSource findStreamSource(UUID id) {
+        Audio audio = audioRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Audio", id));
+        StreamSource source = toStreamSource(audio);
+        if (source == null) {
+            throw new ResourceNotFoundException("Audio file", id);
+        }
+        return source;
+    }
+
+    /**
+     * Resolves the stream sources of several tracks in one query, in the given order, skipping tracks that no longer
+     * exist or whose file is missing.
+     */
+    @Transactional(readOnly = true)
+    public List<StreamSource> findStreamSources(List<UUID> ids) {
+        Map<UUID, Audio> byId = audioRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Audio::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .map(this::toStreamSource)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Warms the in-memory cache with sound effects, most recently updated first, until it is full.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void preloadCache() {
+        long generation = audioCacheService.generation();
+        int loaded = 0;
+        for (String category : audioCacheService.getCategories()) {
+            for (Audio audio : audioRepository.findByCategoryOrderByUpdatedAtDesc(category)) {
+                StreamSource source = toStreamSource(audio);
+                if (source != null && audioCacheService.preload(source, generation)) {
+                    loaded++;
+                }
+            }
+        }
+        log.info("Preloaded {} audio files into the cache", loaded);
+    }
+
+    private @Nullable StreamSource toStreamSource(Audio audio) {
+        String key = audio.getFilePath();
+        AudioStorage.StoredObject object;
         try {
-            Path filePath = Paths.get(audio.getFilePath());
-            Files.deleteIfExists(filePath);
+            object = audioStorage.stat(key);
         } catch (IOException e) {
-            log.warn("Failed to delete audio file: {}", audio.getFilePath(), e);
+            log.warn("Failed to look up audio file {}: {}", key, e.getMessage());
+            return null;
+        }
+        if (object == null) {
+            log.warn("Audio file missing from storage: {}", key);
+            return null;
         }
 
-        audioRepository.delete(audio);
-        log.info("Deleted audio: {}", id);
+        return new StreamSource(
+                audio.getId(),
+                key,
+                audioStorage.localPath(key),
+                audio.getName(),
+                audio.getContentType(),
+                audio.getCategory(),
+                object.length(),
+                object.lastModified(),
+                etag(audio),
+                audio.getContentHash()
+        );
+    }
+
+    /**
+     * Blobs are named by their content hash and never rewritten in place, so the name doubles as a strong ETag.
+     */
+    static String etag(Audio audio) {
+        return "\"" + audio.getFileName() + "\"";
     }
 
-    public Path getAudioPath(UUID id) {
+    /**
+     * Returns the track's file on this node, or empty when the storage backend keeps it remotely.
+     */
+    public Optional<Path> getAudioPath(UUID id) {
         Audio audio = audioRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Audio", id));
-        return Paths.get(audio.getFilePath());
+        return Optional.ofNullable(audioStorage.localPath(audio.getFilePath()));
     }
 
     @Transactional
@@ -107,6 +286,7 @@ public class AudioService {
         Audio audio = audioRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Audio", id));
 
+        audioPackService.categoryChangedAfterCommit(audio.getCategory());
         audio.setName(name);
         if (durationSeconds != null) {
             audio.setDurationSeconds(durationSeconds);
@@ -116,6 +296,9 @@ public class AudioService {
         }
 
         Audio saved = audioRepository.save(audio);
+        audioCacheService.evictAfterCommit(id);
+        audioPackService.categoryChangedAfterCommit(saved.getCategory());
+        audioPackService.playlistsChangedAfterCommit();
         log.info("Updated audio: {}", id);
         return toDTO(saved);
     }
@@ -127,10 +310,32 @@ public class AudioService {
                 audio.getFileName(),
                 audio.getContentType(),
                 audio.getFileSize(),
+                audio.getContentHash(),
                 audio.getDurationSeconds(),
                 audio.getCategory(),
+                audio.getMissingAt(),
                 audio.getCreatedAt(),
                 audio.getUpdatedAt()
         );
     }
+
+    /**
+     * @param key         object key in {@link AudioStorage}, or null for files kept outside it such as packs
+     * @param path        the bytes as a file on this node, or null when they are only reachable through the storage
+     *                    backend
+     * @param contentHash SHA-256 of the bytes served, or null when it is not recorded
+     */
+    public record StreamSource(
+            UUID id,
+            @Nullable String key,
+            @Nullable Path path,
+            String name,
+            String contentType,
+            String category,
+            long length,
+            long lastModified,
+            String etag,
+            @Nullable String contentHash
+    ) {
+    }
 }
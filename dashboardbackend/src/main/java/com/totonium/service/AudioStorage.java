@@ -0,0 +1,97 @@
+package com.totonium.service;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+
+/**
+ * Backend holding stored audio objects, addressed by relative keys such as {@code blobs/2d/<sha-256>}. The backend
+ * is chosen with {@code app.audio.storage.type}: {@code local} (default), {@code mmap} or {@code s3}.
+ * <p>
+ * Objects are written once from a fully staged local file and never modified, so callers and backends may cache
+ * anything they learn about a key until it is deleted. Staging files, packs and other derived data stay on the
+ * local disk regardless of the backend.
+ */
+public interface AudioStorage {
+
+    /**
+     * Stores a fully written local file under {@code key}. The file is consumed: moved into the store or deleted
+     * once uploaded.
+     */
+    void put(String key, Path file) throws IOException;
+
+    /**
+     * @return size and modification time of the object, or null if there is none
+     */
+    @Nullable StoredObject stat(String key) throws IOException;
+
+    /**
+     * Like {@link #stat} but treats a failed lookup as absent, for callers where a wrong "absent" only costs a
+     * redundant store or a leftover object. Callers that act on an object being gone, such as flagging its tracks,
+     * should use {@link #stat} and handle the failure.
+     */
+    default boolean exists(String key) {
+        try {
+            return stat(key) != null;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Opens {@code count} bytes of the object starting at {@code offset}.
+     */
+    ReadableByteChannel open(String key, long offset, long count) throws IOException;
+
+    /**
+     * Copies {@code count} bytes of the object starting at {@code offset} into {@code target}.
+     */
+    default void transferTo(String key, long offset, long count, WritableByteChannel target) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long remaining = count;
+        try (ReadableByteChannel in = open(key, offset, count)) {
+            while (remaining > 0) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), remaining));
+                int read = in.read(buffer);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of object " + key + " at offset " + (offset + count - remaining));
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                remaining -= read;
+            }
+        }
+    }
+
+    /**
+     * Directory the objects live under when they are files on this node, or null for remote backends.
+     * Local files can be handed to sendfile and are walked by {@link StorageReconcileService}.
+     */
+    default @Nullable Path root() {
+        return null;
+    }
+
+    default @Nullable Path localPath(String key) {
+        Path root = root();
+        return root != null ? root.resolve(key) : null;
+    }
+
+    /**
+     * The object's bytes when the backend holds them mapped in memory, or null to read them through
+     * {@link #transferTo}. The buffer is read-only and shared; callers slice it.
+     */
+    default @Nullable ByteBuffer mapped(String key) {
+        return null;
+    }
+
+    record StoredObject(long length, long lastModified) {
+    }
+}
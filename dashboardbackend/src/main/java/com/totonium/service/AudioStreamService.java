@@ -0,0 +1,280 @@
+package com.totonium.service;
+
+import com.totonium.service.AudioService.StreamSource;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes stored audio files to the response with HTTP Range support.
+ * <p>
+ * Single ranges and whole files on the local disk are handed to Tomcat's sendfile when the connector supports it,
+ * so the bytes go from the page cache to the socket without passing through the JVM. Otherwise, and for
+ * multipart/byteranges responses, local files are copied with {@link FileChannel#transferTo}. Tracks held by
+ * {@link AudioCacheService} or mapped by the storage backend are written straight from memory, and objects in a
+ * remote store are fetched one requested range at a time.
+ * <p>
+ * URLs served here are keyed by a track or pack id, not by content: a track can be renamed or deleted and a pack
+ * changes with its membership. Responses are therefore marked no-cache, so clients reuse their copy after an ETag
+ * revalidation (normally a bodiless 304) and guard range requests with If-Range.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AudioStreamService {
+
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String CACHE_CONTROL = "no-cache";
+
+    private final AudioStorage audioStorage;
+
+    public void stream(StreamSource source, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        stream(source, null, request, response);
+    }
+
+    /**
+     * Streams {@code source}, taking the bytes from {@code cached} instead of the file when it is given.
+     */
+    public void stream(StreamSource source, @Nullable ByteBuffer cached,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + source.name() + "\"");
+
+        // Sets ETag/Last-Modified and answers 304/412 for conditional requests
+        if (new ServletWebRequest(request, response).checkNotModified(source.etag(), source.lastModified())) {
+            return;
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = rangesToServe(source, request);
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + source.length());
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        boolean bodyless = "HEAD".equals(request.getMethod());
+
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpServletResponse.SC_OK);
+            response.setContentType(source.contentType());
+            response.setContentLengthLong(source.length());
+            if (!bodyless) {
+                writeRegion(source, cached, 0, source.length(), request, response);
+            }
+            return;
+        }
+
+        if (ranges.size() == 1) {
+            long start = ranges.get(0).getRangeStart(source.length());
+            long end = ranges.get(0).getRangeEnd(source.length());
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setContentType(source.contentType());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(start, end, source.length()));
+            response.setContentLengthLong(end - start + 1);
+            if (!bodyless) {
+                writeRegion(source, cached, start, end - start + 1, request, response);
+            }
+            return;
+        }
+
+        writeMultipart(source, cached, ranges, bodyless, response);
+    }
+
+    /**
+     * Returns the requested ranges, or an empty list when the whole file should be sent.
+     * A Range header that does not parse is ignored, as RFC 9110 requires; one that parses but cannot be satisfied
+     * throws IllegalArgumentException.
+     */
+    private List<HttpRange> rangesToServe(StreamSource source, HttpServletRequest request) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !ifRangeMatches(source, request)) {
+            return List.of();
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            return List.of();
+        }
+        long total = 0;
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(source.length());
+            if (start >= source.length()) {
+                throw new IllegalArgumentException("Range starts past end of file: " + range);
+            }
+            total += range.getRangeEnd(source.length()) - start + 1;
+        }
+        if (ranges.size() > 1 && total > source.length()) {
+            throw new IllegalArgumentException("Overlapping ranges exceed file length");
+        }
+        return ranges;
+    }
+
+    private boolean ifRangeMatches(StreamSource source, HttpServletRequest request) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(source.etag());
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == source.lastModified() / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void writeRegion(StreamSource source, @Nullable ByteBuffer cached, long start, long count,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        ByteBuffer bytes = inMemory(source, cached);
+        if (bytes != null) {
+            write(bytes, start, count, Channels.newChannel(response.getOutputStream()));
+            return;
+        }
+        if (source.path() != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            request.setAttribute(SENDFILE_FILENAME, source.path().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+
+        transfer(source, start, count, Channels.newChannel(response.getOutputStream()));
+    }
+
+    private void writeMultipart(StreamSource source, @Nullable ByteBuffer cached, List<HttpRange> ranges,
+                                boolean bodyless, HttpServletResponse response) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        long length = source.length();
+
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            byte[] header = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + source.contentType() + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(start, end, length) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(header);
+            contentLength += header.length + end - start + 1;
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (bodyless) {
+            return;
+        }
+
+        ServletOutputStream out = response.getOutputStream();
+        WritableByteChannel channel = Channels.newChannel(out);
+        ByteBuffer bytes = inMemory(source, cached);
+        try (FileChannel file = bytes == null && source.path() != null
+                ? FileChannel.open(source.path(), StandardOpenOption.READ) : null) {
+            for (int i = 0; i < ranges.size(); i++) {
+                long start = ranges.get(i).getRangeStart(length);
+                long end = ranges.get(i).getRangeEnd(length);
+                out.write(partHeaders.get(i));
+                if (bytes != null) {
+                    write(bytes, start, end - start + 1, channel);
+                } else if (file != null) {
+                    transfer(file, start, end - start + 1, channel);
+                } else {
+                    audioStorage.transferTo(source.key(), start, end - start + 1, channel);
+                }
+            }
+        }
+        out.write(closing);
+    }
+
+    /**
+     * Copies a whole file into {@code target}, for callers composing their own response bodies.
+     */
+    void transferAll(StreamSource source, WritableByteChannel target) throws IOException {
+        transfer(source, 0, source.length(), target);
+    }
+
+    /**
+     * Opens a whole file for reading, for callers copying it elsewhere.
+     */
+    ReadableByteChannel open(StreamSource source) throws IOException {
+        if (source.path() != null) {
+            return FileChannel.open(source.path(), StandardOpenOption.READ);
+        }
+        return audioStorage.open(source.key(), 0, source.length());
+    }
+
+    private @Nullable ByteBuffer inMemory(StreamSource source, @Nullable ByteBuffer cached) {
+        if (cached != null) {
+            return cached;
+        }
+        return source.key() != null ? audioStorage.mapped(source.key()) : null;
+    }
+
+    private void transfer(StreamSource source, long position, long count, WritableByteChannel target)
+            throws IOException {
+        if (source.path() == null) {
+            audioStorage.transferTo(source.key(), position, count, target);
+            return;
+        }
+        try (FileChannel file = FileChannel.open(source.path(), StandardOpenOption.READ)) {
+            transfer(file, position, count, target);
+        }
+    }
+
+    private void transfer(FileChannel file, long position, long count, WritableByteChannel target)
+            throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long sent = file.transferTo(position, end - position, target);
+            if (sent <= 0) {
+                log.warn("Audio file shrank while streaming at offset {}", position);
+                break;
+            }
+            position += sent;
+        }
+    }
+
+    private void write(ByteBuffer cached, long position, long count, WritableByteChannel target)
+            throws IOException {
+        ByteBuffer slice = cached.slice((int) position, (int) count);
+        while (slice.hasRemaining()) {
+            target.write(slice);
+        }
+    }
+
+    private String contentRange(long start, long end, long length) {
+        return "bytes " + start + "-" + end + "/" + length;
+    }
+}
@@ -0,0 +1,283 @@
+package com.totonium.service;
+
+import com.totonium.dto.AudioDTO;
+import com.totonium.dto.CreateUploadRequest;
+import com.totonium.dto.UploadSessionDTO;
+import com.totonium.exception.ConflictException;
+import com.totonium.exception.ResourceNotFoundException;
+import com.totonium.service.AudioBlobService.StoredBlob;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Resumable chunked uploads (tus-style create / PATCH at offset / complete).
+ * <p>
+ * Chunks are written into a staging file beside the blob store and hashed as they arrive, so nothing is buffered
+ * by the multipart resolver and a dropped connection only loses the chunk in flight. Completing the upload renames
+ * the file into the store, or drops it if that content is already stored. A client that sends the content hash
+ * up front and matches an existing blob skips the transfer entirely.
+ * Session state, including the running digest, is kept in memory: uploads interrupted by a restart have to be
+ * started again. Once completion has stored the file, the session holds the blob reference until the track is
+ * created, so a completion that failed after storing can be retried without the data.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AudioUploadService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final AudioService audioService;
+    private final AudioBlobService audioBlobService;
+
+    private final Map<UUID, UploadSession> sessions = new ConcurrentHashMap<>();
+
+    @Value("${app.audio.uploads.max-length:2GB}")
+    private DataSize maxLength;
+
+    @Value("${app.audio.uploads.expire-after:24h}")
+    private Duration expireAfter;
+
+    public UploadSessionDTO create(CreateUploadRequest request) throws IOException {
+        if (request.length() > maxLength.toBytes()) {
+            throw new IllegalArgumentException("Upload length exceeds maximum of " + maxLength);
+        }
+
+        String contentHash = request.contentHash();
+        if (contentHash != null && audioBlobService.isStored(contentHash, request.length())) {
+            UploadSession session = new UploadSession(UUID.randomUUID(), request, null);
+            session.offset = request.length();
+            sessions.put(session.id, session);
+            log.info("Created upload {} for {}: content already stored as {}", session.id, request.name(), contentHash);
+            return toDTO(session);
+        }
+
+        UploadSession session = new UploadSession(UUID.randomUUID(), request, audioBlobService.createTempFile());
+        sessions.put(session.id, session);
+        log.info("Created upload {} for {} ({} bytes)", session.id, request.name(), request.length());
+        return toDTO(session);
+    }
+
+    public UploadSessionDTO status(UUID id) {
+        return toDTO(require(id));
+    }
+
+    /**
+     * Appends the request body at {@code offset}, which must equal the number of bytes received so far.
+     * If the client disconnects mid-chunk, every byte already written is kept and reported by the next status call.
+     */
+    public UploadSessionDTO append(UUID id, long offset, InputStream body) throws IOException {
+        UploadSession session = require(id);
+        if (!session.lock.tryLock()) {
+            throw new ConflictException("Upload " + id + " is already receiving a chunk");
+        }
+        try {
+            if (session.path == null) {
+                throw new ConflictException("Upload " + id + " matched stored content and needs no data");
+            }
+            if (offset != session.offset) {
+                throw new ConflictException("Upload-Offset " + offset + " does not match current offset " + session.offset);
+            }
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (FileChannel channel = FileChannel.open(session.path, StandardOpenOption.WRITE)) {
+                int read;
+                while ((read = readChunk(session, body, buffer)) > 0) {
+                    if (session.offset + read > session.request.length()) {
+                        throw new IllegalArgumentException("Chunk exceeds declared upload length of " + session.request.length());
+                    }
+                    ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                    long position = session.offset;
+                    while (bytes.hasRemaining()) {
+                        position += channel.write(bytes, position);
+                    }
+                    session.digest.update(buffer, 0, read);
+                    session.offset += read;
+                }
+            }
+            session.touch();
+            return toDTO(session);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    public AudioDTO complete(UUID id) throws IOException {
+        UploadSession session = require(id);
+        if (!session.lock.tryLock()) {
+            throw new ConflictException("Upload " + id + " is still receiving a chunk");
+        }
+        try {
+            if (session.offset != session.request.length()) {
+                throw new ConflictException("Upload incomplete: received " + session.offset
+                        + " of " + session.request.length() + " bytes");
+            }
+
+            if (session.blob == null) {
+                session.blob = store(session);
+            }
+
+            // If this fails the session keeps its blob reference, and the client can retry
+            CreateUploadRequest request = session.request;
+            StoredBlob blob = session.blob;
+            AudioDTO audio = audioService.registerStoredFile(request.name(), blob.key(), request.contentType(),
+                    blob.size(), request.category(), blob.contentHash());
+            sessions.remove(id);
+            log.info("Completed upload {} -> audio {}", id, audio.id());
+            return audio;
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    public void abort(UUID id) {
+        UploadSession session = require(id);
+        if (!session.lock.tryLock()) {
+            throw new ConflictException("Upload " + id + " is still receiving a chunk");
+        }
+        try {
+            sessions.remove(id);
+            discard(session);
+        } finally {
+            session.lock.unlock();
+        }
+        log.info("Aborted upload {}", id);
+    }
+
+    @Scheduled(fixedDelayString = "${app.audio.uploads.sweep-interval:PT15M}")
+    public void expireStaleSessions() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(expireAfter);
+        sessions.values().removeIf(session -> {
+            if (session.lastActivity.isAfter(cutoff) || session.lock.isLocked()) {
+                return false;
+            }
+            discard(session);
+            log.info("Expired upload {} at offset {}", session.id, session.offset);
+            return true;
+        });
+    }
+
+    /**
+     * Moves the received file into the blob store, or takes a reference to the stored content the client declared.
+     * The running digest is consumed and the staging file moved, so on failure the session is dropped and the
+     * upload has to be started again.
+     */
+    private StoredBlob store(UploadSession session) throws IOException {
+        CreateUploadRequest request = session.request;
+        try {
+            if (session.path == null) {
+                return audioBlobService.acquire(request.contentHash(), request.length())
+                        .orElseThrow(() -> new ConflictException("Stored content " + request.contentHash()
+                                + " is no longer available; start a new upload with the file data"));
+            }
+
+            String contentHash = HexFormat.of().formatHex(session.digest.digest());
+            if (request.contentHash() != null && !request.contentHash().equals(contentHash)) {
+                throw new IllegalArgumentException("Uploaded data does not match declared content hash "
+                        + request.contentHash());
+            }
+            try (FileChannel channel = FileChannel.open(session.path, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            return audioService.storeStagedFile(session.path, contentHash, session.offset);
+        } catch (IOException | RuntimeException e) {
+            sessions.remove(session.id);
+            deletePartialFile(session);
+            throw e;
+        }
+    }
+
+    private UploadSession require(UUID id) {
+        UploadSession session = sessions.get(id);
+        if (session == null) {
+            throw new ResourceNotFoundException("Upload", id);
+        }
+        return session;
+    }
+
+    /**
+     * Reads the next chunk of the body, treating a broken client connection as the end of the chunk.
+     */
+    private int readChunk(UploadSession session, InputStream body, byte[] buffer) {
+        try {
+            return body.read(buffer);
+        } catch (IOException e) {
+            log.info("Upload {} interrupted at offset {}: {}", session.id, session.offset, e.getMessage());
+            return -1;
+        }
+    }
+
+    private void discard(UploadSession session) {
+        deletePartialFile(session);
+        if (session.blob != null) {
+            audioBlobService.release(session.blob.contentHash());
+        }
+    }
+
+    private void deletePartialFile(UploadSession session) {
+        if (session.path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(session.path);
+        } catch (IOException e) {
+            log.warn("Failed to delete partial upload: {}", session.path, e);
+        }
+    }
+
+    private UploadSessionDTO toDTO(UploadSession session) {
+        return new UploadSessionDTO(
+                session.id,
+                session.request.name(),
+                session.offset,
+                session.request.length(),
+                session.lastActivity.plus(expireAfter)
+        );
+    }
+
+    private static final class UploadSession {
+        private final UUID id;
+        private final CreateUploadRequest request;
+        // Staging file, or null when the declared content hash matched an existing blob
+        @Nullable
+        private final Path path;
+        private final MessageDigest digest = AudioBlobService.newContentDigest();
+        private final ReentrantLock lock = new ReentrantLock();
+        // Set once completion has stored the file; the session owns this reference until the track is created
+        @Nullable
+        private volatile StoredBlob blob;
+        private volatile long offset;
+        private volatile LocalDateTime lastActivity = LocalDateTime.now();
+
+        private UploadSession(UUID id, CreateUploadRequest request, @Nullable Path path) {
+            this.id = id;
+            this.request = request;
+            this.path = path;
+        }
+
+        private void touch() {
+            lastActivity = LocalDateTime.now();
+        }
+    }
+}
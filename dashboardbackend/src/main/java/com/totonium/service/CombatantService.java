@@ -2,21 +2,36 @@ package com.totonium.service;
 
 import com.totonium.dto.*;
 import com.totonium.entity.Combatant;
+import com.totonium.entity.DamageType;
+import com.totonium.entity.Statblock;
 import com.totonium.exception.ResourceNotFoundException;
 import com.totonium.repository.CombatantRepository;
+import com.totonium.repository.EncounterRepository;
+import com.totonium.repository.StatblockRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class CombatantService {
 
     private final CombatantRepository combatantRepository;
+    private final StatblockRepository statblockRepository;
+    private final TurnReminderService turnReminderService;
+    private final EncounterRepository encounterRepository;
+    private final EncounterArchiveService encounterArchiveService;
 
     @Transactional(readOnly = true)
     public List<CombatantDTO> findAll() {
@@ -34,16 +49,28 @@ public class CombatantService {
 
     @Transactional(readOnly = true)
     public List<CombatantDTO> findByEncounterId(UUID encounterId) {
-        return combatantRepository.findByEncounterIdOrderByCombatOrderAsc(encounterId).stream()
+        return findCombatants(encounterId).stream()
                 .map(this::toDTO)
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Returns the encounter's combatants in combat order. An empty result may mean the encounter
+     * was archived, so it is rehydrated and read again, as encounter lookups do.
+     */
+    List<Combatant> findCombatants(UUID encounterId) {
+        List<Combatant> combatants = combatantRepository.findByEncounterIdOrderByCombatOrderAsc(encounterId);
+        if (combatants.isEmpty() && !encounterRepository.existsById(encounterId)
+                && encounterArchiveService.rehydrate(encounterId)) {
+            combatants = combatantRepository.findByEncounterIdOrderByCombatOrderAsc(encounterId);
+        }
+        return combatants;
+    }
+
     @Transactional
     public CombatantDTO create(CreateCombatantRequest request) {
         Combatant combatant = Combatant.builder()
                 .name(request.name())
-                .statblockId(request.statblockId())
                 .initiative(request.initiative())
                 .currentHP(request.currentHP())
                 .maxHP(request.maxHP())
@@ -56,8 +83,10 @@ public class CombatantService {
                 .notes(request.notes())
                 .isActive(false)
                 .build();
+        assignStatblock(combatant, resolveStatblock(request.statblockId()));
 
         Combatant saved = combatantRepository.save(combatant);
+        turnReminderService.invalidate(saved.getEncounterId());
         return toDTO(saved);
     }
 
@@ -67,7 +96,7 @@ public class CombatantService {
                 .orElseThrow(() -> new ResourceNotFoundException("Combatant", id));
 
         if (request.name() != null) combatant.setName(request.name());
-        if (request.statblockId() != null) combatant.setStatblockId(request.statblockId());
+        if (request.statblockId() != null) assignStatblock(combatant, resolveStatblock(request.statblockId()));
         if (request.initiative() != null) combatant.setInitiative(request.initiative());
         if (request.currentHP() != null) combatant.setCurrentHP(request.currentHP());
         if (request.maxHP() != null) combatant.setMaxHP(request.maxHP());
@@ -80,43 +109,138 @@ public class CombatantService {
         if (request.notes() != null) combatant.setNotes(request.notes());
 
         Combatant saved = combatantRepository.save(combatant);
+        turnReminderService.invalidate(saved.getEncounterId());
         return toDTO(saved);
     }
 
     @Transactional
     public void delete(UUID id) {
-        if (!combatantRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Combatant", id);
-        }
-        combatantRepository.deleteById(id);
+        Combatant combatant = combatantRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Combatant", id));
+        combatantRepository.delete(combatant);
+        turnReminderService.invalidate(combatant.getEncounterId());
     }
 
     @Transactional
-    public CombatantDTO updateHealth(UUID id, int damage) {
+    public CombatantDTO updateHealth(UUID id, int amount, @Nullable DamageType damageType) {
         Combatant combatant = combatantRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Combatant", id));
 
+        applyHealthChange(combatant, amount, damageType);
+
+        Combatant saved = combatantRepository.save(combatant);
+        return toDTO(saved);
+    }
+
+    /**
+     * Applies the same damage or healing to several combatants, e.g. an area effect,
+     * adjusting each one by its own damage immunities, resistances and vulnerabilities.
+     */
+    @Transactional
+    public List<CombatantDTO> updateHealthBatch(List<UUID> ids, int amount, @Nullable DamageType damageType) {
+        List<Combatant> combatants = combatantRepository.findAllById(ids);
+        if (combatants.size() != new HashSet<>(ids).size()) {
+            Set<UUID> found = combatants.stream().map(Combatant::getId).collect(Collectors.toSet());
+            UUID missing = ids.stream().filter(id -> !found.contains(id)).findFirst().orElse(null);
+            throw new ResourceNotFoundException("Combatant", missing);
+        }
+
+        for (Combatant combatant : combatants) {
+            applyHealthChange(combatant, amount, damageType);
+        }
+
+        return combatantRepository.saveAll(combatants).stream()
+                .map(this::toDTO)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Negative amounts are damage (absorbed by temporary HP first), positive amounts are healing.
+     */
+    private void applyHealthChange(Combatant combatant, int amount, @Nullable DamageType damageType) {
         int currentHP = combatant.getCurrentHP();
         int tempHP = combatant.getTemporaryHP() != null ? combatant.getTemporaryHP() : 0;
 
-        if (damage < 0) {
-            int absorbed = Math.min(Math.abs(damage), tempHP);
-            int remainingDamage = Math.abs(damage) - absorbed;
+        if (amount < 0) {
+            int damage = Math.abs(amount);
+            if (damageType != null) {
+                damage = damageType.adjust(damage,
+                        maskOf(combatant.getDamageImmunityMask()),
+                        maskOf(combatant.getDamageResistanceMask()),
+                        maskOf(combatant.getDamageVulnerabilityMask()));
+            }
+            int absorbed = Math.min(damage, tempHP);
+            int remainingDamage = damage - absorbed;
             combatant.setTemporaryHP(Math.max(0, tempHP - absorbed));
             combatant.setCurrentHP(Math.max(0, currentHP - remainingDamage));
         } else {
-            combatant.setCurrentHP(Math.min(combatant.getMaxHP(), currentHP + damage));
+            combatant.setCurrentHP(Math.min(combatant.getMaxHP(), currentHP + amount));
         }
+    }
 
-        Combatant saved = combatantRepository.save(combatant);
-        return toDTO(saved);
+    /**
+     * Links the statblock and precomputes its damage type masks so HP changes never
+     * have to parse the statblock's damage lists.
+     */
+    private void assignStatblock(Combatant combatant, @Nullable Statblock statblock) {
+        combatant.setStatblock(statblock);
+        if (statblock == null) {
+            combatant.setDamageImmunityMask(null);
+            combatant.setDamageResistanceMask(null);
+            combatant.setDamageVulnerabilityMask(null);
+            return;
+        }
+        combatant.setDamageImmunityMask(DamageType.toMask(DamageType.parseAll(statblock.getDamageImmunities())));
+        combatant.setDamageResistanceMask(DamageType.toMask(DamageType.parseAll(statblock.getDamageResistances())));
+        combatant.setDamageVulnerabilityMask(DamageType.toMask(DamageType.parseAll(statblock.getDamageVulnerabilities())));
+    }
+
+    /**
+     * Recomputes the damage type masks of every combatant linked to the statblock in one UPDATE;
+     * called when its immunity, resistance or vulnerability lists change.
+     */
+    @Transactional
+    public void refreshDamageMasks(Statblock statblock) {
+        combatantRepository.updateDamageMasks(
+                statblock.getId(),
+                DamageType.toMask(DamageType.parseAll(statblock.getDamageImmunities())),
+                DamageType.toMask(DamageType.parseAll(statblock.getDamageResistances())),
+                DamageType.toMask(DamageType.parseAll(statblock.getDamageVulnerabilities())));
+    }
+
+    /**
+     * Computes the masks of combatants linked before masks existed, which would otherwise take full
+     * damage of every type. Once done there is nothing left to find.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillDamageMasks() {
+        List<UUID> statblockIds = combatantRepository.findStatblockIdsMissingDamageMasks();
+        statblockRepository.findAllById(statblockIds).forEach(this::refreshDamageMasks);
+        if (!statblockIds.isEmpty()) {
+            log.info("Computed damage type masks for combatants of {} statblocks", statblockIds.size());
+        }
+    }
+
+    private static int maskOf(@Nullable Integer mask) {
+        return mask != null ? mask : 0;
+    }
+
+    private @Nullable Statblock resolveStatblock(@Nullable UUID statblockId) {
+        if (statblockId == null) {
+            return null;
+        }
+        return statblockRepository.findById(statblockId)
+                .orElseThrow(() -> new ResourceNotFoundException("Statblock", statblockId));
     }
 
-    private CombatantDTO toDTO(Combatant entity) {
+    CombatantDTO toDTO(Combatant entity) {
+        // getId() on the lazy proxy does not initialize it, so no extra query here
+        Statblock statblock = entity.getStatblock();
         return new CombatantDTO(
                 entity.getId(),
                 entity.getName(),
-                entity.getStatblockId(),
+                statblock != null ? statblock.getId() : null,
                 entity.getInitiative(),
                 entity.getCurrentHP(),
                 entity.getMaxHP(),
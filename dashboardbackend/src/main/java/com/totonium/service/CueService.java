@@ -0,0 +1,225 @@
+package com.totonium.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.totonium.dto.CueDTO;
+import com.totonium.dto.CueRequest;
+import com.totonium.exception.ResourceNotFoundException;
+import com.totonium.repository.AudioRepository;
+import com.totonium.repository.PlaylistRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans SFX and music cues out to every device signed in to the DM's account over server-sent events.
+ * <p>
+ * Each cue carries a start time a short lead ahead of the server clock; devices estimate their offset from the
+ * server with {@link com.totonium.dto.ClockDTO} exchanges and schedule playback for that instant, so they start
+ * together however long delivery took. Cues are fire-and-forget: a device that is reconnecting misses them, as
+ * they would be late by the time it is back.
+ * <p>
+ * Publishing never blocks on a device. The event is serialized once, the listener list is a copy-on-write
+ * snapshot, and each listener drains its own queue on a virtual thread; a listener that falls
+ * {@code max-backlog} events behind is disconnected and left to reconnect.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CueService {
+
+    private static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("heartbeat").build();
+
+    private final AudioRepository audioRepository;
+    private final PlaylistRepository playlistRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.cues.lead:300ms}")
+    private Duration lead;
+
+    @Value("${app.cues.emitter-timeout:30m}")
+    private Duration emitterTimeout;
+
+    @Value("${app.cues.max-backlog:64}")
+    private int maxBacklog;
+
+    private final Map<String, List<Listener>> channels = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * Opens an event stream receiving the cues published by {@code owner}.
+     */
+    public SseEmitter subscribe(String owner) {
+        SseEmitter emitter = new SseEmitter(emitterTimeout.toMillis());
+        Listener listener = new Listener(owner, emitter);
+        emitter.onCompletion(listener::remove);
+        emitter.onTimeout(listener::close);
+        emitter.onError(error -> listener.remove());
+
+        channels.compute(owner, (key, listeners) -> {
+            List<Listener> updated = listeners != null ? listeners : new CopyOnWriteArrayList<>();
+            updated.add(listener);
+            return updated;
+        });
+        // Sent right away so proxies and the client see the stream open
+        listener.offer(SseEmitter.event().comment("connected").build());
+        log.debug("Cue listener connected for {}", owner);
+        return emitter;
+    }
+
+    /**
+     * Sends a cue to every device listening for {@code owner}.
+     */
+    public CueDTO publish(String owner, CueRequest request) {
+        CueDTO.Action action = request.action();
+        if (action.needsAudio()) {
+            if (request.audioId() == null) {
+                throw new IllegalArgumentException(action + " requires an audioId");
+            }
+            if (!audioRepository.existsById(request.audioId())) {
+                throw new ResourceNotFoundException("Audio", request.audioId());
+            }
+        }
+        if (action.needsPlaylist()) {
+            if (request.playlistId() == null) {
+                throw new IllegalArgumentException(action + " requires a playlistId");
+            }
+            if (!playlistRepository.existsById(request.playlistId())) {
+                throw new ResourceNotFoundException("Playlist", request.playlistId());
+            }
+        }
+
+        List<Listener> listeners = channels.getOrDefault(owner, List.of());
+        long now = System.currentTimeMillis();
+        long leadMillis = request.leadMs() != null ? request.leadMs() : lead.toMillis();
+        CueDTO cue = new CueDTO(
+                sequence.incrementAndGet(),
+                action,
+                action.needsAudio() ? request.audioId() : null,
+                action.needsPlaylist() ? request.playlistId() : null,
+                request.volume(),
+                Boolean.TRUE.equals(request.loop()),
+                now,
+                now + leadMillis,
+                listeners.size()
+        );
+
+        Set<DataWithMediaType> event;
+        try {
+            event = SseEmitter.event()
+                    .id(Long.toString(cue.sequence()))
+                    .name("cue")
+                    .data(objectMapper.writeValueAsString(cue), MediaType.TEXT_PLAIN)
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize cue", e);
+        }
+        for (Listener listener : listeners) {
+            listener.offer(event);
+        }
+
+        log.debug("Cue {} {} sent to {} listeners of {}", cue.sequence(), action, listeners.size(), owner);
+        return cue;
+    }
+
+    /**
+     * Keeps idle streams from being cut by proxies and detects devices that went away.
+     */
+    @Scheduled(fixedDelayString = "${app.cues.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        for (List<Listener> listeners : channels.values()) {
+            for (Listener listener : listeners) {
+                listener.offer(HEARTBEAT);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        channels.values().forEach(listeners -> listeners.forEach(Listener::close));
+        senders.shutdownNow();
+    }
+
+    private final class Listener {
+        private final String owner;
+        private final SseEmitter emitter;
+        private final Queue<Set<DataWithMediaType>> backlog = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger pending = new AtomicInteger();
+        private final AtomicBoolean removed = new AtomicBoolean();
+
+        private Listener(String owner, SseEmitter emitter) {
+            this.owner = owner;
+            this.emitter = emitter;
+        }
+
+        /**
+         * Queues an event; whichever caller takes the queue from empty starts the drain, so each listener has at
+         * most one sender and events go out in order.
+         */
+        private void offer(Set<DataWithMediaType> event) {
+            if (removed.get()) {
+                return;
+            }
+            if (pending.get() >= maxBacklog) {
+                log.debug("Cue listener for {} fell {} events behind, disconnecting", owner, maxBacklog);
+                close();
+                return;
+            }
+            backlog.add(event);
+            if (pending.getAndIncrement() == 0) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                Set<DataWithMediaType> event = backlog.poll();
+                if (event != null && !removed.get()) {
+                    try {
+                        emitter.send(event);
+                    } catch (IOException | IllegalStateException e) {
+                        log.debug("Cue listener for {} went away: {}", owner, e.getMessage());
+                        remove();
+                    }
+                }
+            } while (pending.decrementAndGet() > 0);
+        }
+
+        private void close() {
+            remove();
+            emitter.complete();
+        }
+
+        private void remove() {
+            if (!removed.compareAndSet(false, true)) {
+                return;
+            }
+            channels.computeIfPresent(owner, (key, listeners) -> {
+                listeners.remove(this);
+                return listeners.isEmpty() ? null : listeners;
+            });
+        }
+    }
+}
@@ -6,6 +6,8 @@ import com.totonium.entity.Device;
 import com.totonium.entity.User;
 import com.totonium.repository.DeviceRepository;
 import com.totonium.repository.UserRepository;
+import com.totonium.security.ApprovedDeviceIndex;
+import com.totonium.security.PrincipalCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -24,6 +26,8 @@ public class DeviceService {
     private final DeviceRepository deviceRepository;
     private final UserRepository userRepository;
     private final JwtService jwtService;
+    private final PrincipalCache principalCache;
+    private final ApprovedDeviceIndex approvedDeviceIndex;
 
     private static final String APPROVAL_CODE_CHARS = "ABCDEFGHJKLMNPQRSTUVWXYZ23456789";
     private static final int APPROVAL_CODE_LENGTH = 8;
@@ -52,6 +56,7 @@ public class DeviceService {
                 device.setName(request.deviceName());
                 device.setPlatform(request.platform());
                 device.setBrowser(request.browser());
+                approvedDeviceIndex.approve(userId, device.getDeviceFingerprint());
                 return toResponse(deviceRepository.save(device));
             }
             throw new RuntimeException("Device not approved. Please enter the approval code from an approved device.");
@@ -86,6 +91,7 @@ public class DeviceService {
                 .approved(true)
                 .lastAccessedAt(LocalDateTime.now())
                 .build();
+        approvedDeviceIndex.approve(userId, device.getDeviceFingerprint());
         return toResponse(deviceRepository.save(device));
     }
 
@@ -104,6 +110,7 @@ public class DeviceService {
         device.setApproved(true);
         device.setApprovalCode(null);
         device.setApprovalCodeExpiresAt(null);
+        approvedDeviceIndex.approve(userId, device.getDeviceFingerprint());
         return toResponse(deviceRepository.save(device));
     }
 
@@ -129,6 +136,8 @@ public class DeviceService {
         }
 
         deviceRepository.delete(device);
+        approvedDeviceIndex.revoke(userId, device.getDeviceFingerprint());
+        principalCache.invalidate(userId);
     }
 
     public String generateApprovalCodeForDevice(UUID userId, UUID deviceId) {
@@ -177,6 +186,7 @@ public class DeviceService {
             device.setApprovalCode(null);
             device.setApprovalCodeExpiresAt(null);
             device.setLastAccessedAt(LocalDateTime.now());
+            approvedDeviceIndex.approve(device.getUser().getId(), device.getDeviceFingerprint());
             return toResponse(deviceRepository.save(device));
         }
 
@@ -203,6 +213,7 @@ public class DeviceService {
             device.setName(deviceName);
             device.setPlatform(platform);
             device.setBrowser(browser);
+            approvedDeviceIndex.approve(userId, deviceFingerprint);
             return toResponse(deviceRepository.save(device));
         }
 
@@ -216,6 +227,7 @@ public class DeviceService {
                 .approved(true)
                 .lastAccessedAt(LocalDateTime.now())
                 .build();
+        approvedDeviceIndex.approve(userId, deviceFingerprint);
         return toResponse(deviceRepository.save(device));
     }
 
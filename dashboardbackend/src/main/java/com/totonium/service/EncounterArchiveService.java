@@ -0,0 +1,341 @@
+package com.totonium.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.totonium.dto.ArchivedEncounterDTO;
+import com.totonium.entity.Combatant;
+import com.totonium.entity.Encounter;
+import com.totonium.entity.EncounterArchive;
+import com.totonium.entity.Statblock;
+import com.totonium.exception.ResourceNotFoundException;
+import com.totonium.repository.CombatantRepository;
+import com.totonium.repository.EncounterArchiveRepository;
+import com.totonium.repository.EncounterRepository;
+import com.totonium.repository.StatblockRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves completed encounters and their combatants out of the hot tables into
+ * gzip-compressed snapshots in encounter_archives, and restores them on demand.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EncounterArchiveService {
+
+    private final EncounterRepository encounterRepository;
+    private final CombatantRepository combatantRepository;
+    private final StatblockRepository statblockRepository;
+    private final EncounterArchiveRepository encounterArchiveRepository;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+    private final TurnReminderService turnReminderService;
+
+    @Value("${app.encounters.archive.after:30d}")
+    private Duration archiveAfter;
+
+    @Value("${app.encounters.archive.batch-size:50}")
+    private int batchSize;
+
+    @Scheduled(cron = "${app.encounters.archive.cron:0 30 4 * * *}")
+    public void scheduledArchival() {
+        archiveCompletedEncounters();
+    }
+
+    /**
+     * Archives every completed encounter that ended before the configured age,
+     * one transaction per encounter so a bad row cannot block the rest.
+     *
+     * @return number of encounters archived
+     */
+    public int archiveCompletedEncounters() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(archiveAfter);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        log.info("Archiving encounters completed before {}", cutoff);
+
+        int archived = 0;
+        while (true) {
+            List<UUID> batch = encounterRepository.findArchivableIds(cutoff, Limit.of(batchSize));
+            int archivedInBatch = 0;
+            for (UUID id : batch) {
+                try {
+                    transaction.executeWithoutResult(status -> archiveEncounter(id));
+                    archivedInBatch++;
+                } catch (RuntimeException e) {
+                    log.error("Failed to archive encounter {}", id, e);
+                }
+            }
+            archived += archivedInBatch;
+            // Stop on a short batch, or when every row in it keeps failing
+            if (batch.size() < batchSize || archivedInBatch == 0) {
+                break;
+            }
+        }
+
+        log.info("Archived {} encounters", archived);
+        return archived;
+    }
+
+    @Transactional
+    public ArchivedEncounterDTO archive(UUID id) {
+        return archiveEncounter(id);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ArchivedEncounterDTO> findAll() {
+        return encounterArchiveRepository.findAllSummaries();
+    }
+
+    /**
+     * Restores an archived encounter and its combatants into the hot tables under their
+     * original ids. Runs in its own transaction so read-only callers can rehydrate transparently.
+     * <p>
+     * The archive row is locked first, so when two requests miss on the same encounter the second
+     * waits for the first, finds the archive gone and the encounter already back. The restore time is
+     * recorded, and the encounter is only archived again once that is older than the archive age too.
+     *
+     * @return false if the encounter is neither archived nor already restored
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public boolean rehydrate(UUID id) {
+        Optional<EncounterArchive> found = encounterArchiveRepository.findByIdForUpdate(id);
+        if (found.isEmpty()) {
+            return encounterRepository.existsById(id);
+        }
+        EncounterArchive archive = found.get();
+        EncounterSnapshot snapshot = decompress(archive.getPayload());
+
+        Encounter encounter = snapshot.toEntity();
+        encounter.setRehydratedAt(LocalDateTime.now());
+        encounterRepository.insertWithId(encounter);
+
+        // Statblocks deleted since archival are dropped, as ON DELETE SET NULL would have done
+        Set<UUID> referenced = snapshot.combatants().stream()
+                .map(CombatantSnapshot::statblockId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<UUID> existing = statblockRepository.findAllById(referenced).stream()
+                .map(Statblock::getId)
+                .collect(Collectors.toSet());
+        for (CombatantSnapshot combatant : snapshot.combatants()) {
+            Statblock statblock = combatant.statblockId() != null && existing.contains(combatant.statblockId())
+                    ? statblockRepository.getReferenceById(combatant.statblockId())
+                    : null;
+            combatantRepository.insertWithId(combatant.toEntity(snapshot.id(), statblock));
+        }
+
+        encounterArchiveRepository.delete(archive);
+        log.info("Rehydrated encounter {} with {} combatants", id, snapshot.combatants().size());
+        return true;
+    }
+
+    @Transactional
+    public boolean deleteArchived(UUID id) {
+        if (!encounterArchiveRepository.existsById(id)) {
+            return false;
+        }
+        encounterArchiveRepository.deleteById(id);
+        log.info("Deleted archived encounter {}", id);
+        return true;
+    }
+
+    private ArchivedEncounterDTO archiveEncounter(UUID id) {
+        Encounter encounter = encounterRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Encounter", id));
+        if (!Boolean.TRUE.equals(encounter.getIsCompleted())) {
+            throw new IllegalArgumentException("Only completed encounters can be archived");
+        }
+        List<Combatant> combatants = combatantRepository.findByEncounterIdOrderByCombatOrderAsc(id);
+
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(EncounterSnapshot.of(encounter, combatants));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to serialize encounter " + id, e);
+        }
+        byte[] payload = compress(json);
+
+        EncounterArchive archive = encounterArchiveRepository.save(EncounterArchive.builder()
+                .id(id)
+                .name(encounter.getName())
+                .campaignId(encounter.getCampaignId())
+                .endedAt(encounter.getEndedAt())
+                .combatantCount(combatants.size())
+                .rawSize((long) json.length)
+                .compressedSize((long) payload.length)
+                .payload(payload)
+                .build());
+
+        combatantRepository.deleteByEncounterId(id);
+        encounterRepository.delete(encounter);
+        turnReminderService.invalidate(id);
+        log.info("Archived encounter {} ({} combatants, {} -> {} bytes)",
+                id, combatants.size(), json.length, payload.length);
+
+        return new ArchivedEncounterDTO(archive.getId(), archive.getName(), archive.getCampaignId(),
+                archive.getEndedAt(), archive.getArchivedAt(), archive.getCombatantCount(),
+                archive.getRawSize(), archive.getCompressedSize());
+    }
+
+    private byte[] compress(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compress encounter archive", e);
+        }
+        return out.toByteArray();
+    }
+
+    private EncounterSnapshot decompress(byte[] payload) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(payload))) {
+            return objectMapper.readValue(gzip, EncounterSnapshot.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read encounter archive", e);
+        }
+    }
+
+    record EncounterSnapshot(
+            UUID id,
+            String name,
+            @Nullable String description,
+            @Nullable UUID campaignId,
+            @Nullable Boolean isCompleted,
+            @Nullable Integer currentRound,
+            @Nullable Integer currentTurnIndex,
+            @Nullable LocalDateTime startedAt,
+            @Nullable LocalDateTime endedAt,
+            @Nullable LocalDateTime createdAt,
+            @Nullable LocalDateTime updatedAt,
+            List<CombatantSnapshot> combatants
+    ) {
+        static EncounterSnapshot of(Encounter encounter, List<Combatant> combatants) {
+            return new EncounterSnapshot(
+                    encounter.getId(),
+                    encounter.getName(),
+                    encounter.getDescription(),
+                    encounter.getCampaignId(),
+                    encounter.getIsCompleted(),
+                    encounter.getCurrentRound(),
+                    encounter.getCurrentTurnIndex(),
+                    encounter.getStartedAt(),
+                    encounter.getEndedAt(),
+                    encounter.getCreatedAt(),
+                    encounter.getUpdatedAt(),
+                    combatants.stream().map(CombatantSnapshot::of).toList()
+            );
+        }
+
+        Encounter toEntity() {
+            return Encounter.builder()
+                    .id(id)
+                    .name(name)
+                    .description(description)
+                    .campaignId(campaignId)
+                    .isCompleted(isCompleted)
+                    .currentRound(currentRound)
+                    .currentTurnIndex(currentTurnIndex)
+                    .startedAt(startedAt)
+                    .endedAt(endedAt)
+                    .createdAt(createdAt)
+                    .updatedAt(updatedAt)
+                    .build();
+        }
+    }
+
+    record CombatantSnapshot(
+            UUID id,
+            String name,
+            @Nullable UUID statblockId,
+            Integer initiative,
+            Integer currentHP,
+            Integer maxHP,
+            @Nullable Integer temporaryHP,
+            @Nullable String size,
+            @Nullable String type,
+            @Nullable String alignment,
+            @Nullable Integer damageImmunityMask,
+            @Nullable Integer damageResistanceMask,
+            @Nullable Integer damageVulnerabilityMask,
+            @Nullable Integer combatOrder,
+            @Nullable Boolean isActive,
+            @Nullable Boolean isPlayersCharacter,
+            @Nullable String notes,
+            @Nullable LocalDateTime createdAt,
+            @Nullable LocalDateTime updatedAt
+    ) {
+        static CombatantSnapshot of(Combatant combatant) {
+            Statblock statblock = combatant.getStatblock();
+            return new CombatantSnapshot(
+                    combatant.getId(),
+                    combatant.getName(),
+                    statblock != null ? statblock.getId() : null,
+                    combatant.getInitiative(),
+                    combatant.getCurrentHP(),
+                    combatant.getMaxHP(),
+                    combatant.getTemporaryHP(),
+                    combatant.getSize(),
+                    combatant.getType(),
+                    combatant.getAlignment(),
+                    combatant.getDamageImmunityMask(),
+                    combatant.getDamageResistanceMask(),
+                    combatant.getDamageVulnerabilityMask(),
+                    combatant.getCombatOrder(),
+                    combatant.getIsActive(),
+                    combatant.getIsPlayersCharacter(),
+                    combatant.getNotes(),
+                    combatant.getCreatedAt(),
+                    combatant.getUpdatedAt()
+            );
+        }
+
+        Combatant toEntity(UUID encounterId, @Nullable Statblock statblock) {
+            return Combatant.builder()
+                    .id(id)
+                    .name(name)
+                    .statblock(statblock)
+                    .initiative(initiative)
+                    .currentHP(currentHP)
+                    .maxHP(maxHP)
+                    .temporaryHP(temporaryHP)
+                    .size(size)
+                    .type(type)
+                    .alignment(alignment)
+                    .damageImmunityMask(damageImmunityMask)
+                    .damageResistanceMask(damageResistanceMask)
+                    .damageVulnerabilityMask(damageVulnerabilityMask)
+                    .encounterId(encounterId)
+                    .combatOrder(combatOrder)
+                    .isActive(isActive)
+                    .isPlayersCharacter(isPlayersCharacter)
+                    .notes(notes)
+                    .createdAt(createdAt)
+                    .updatedAt(updatedAt)
+                    .build();
+        }
+    }
+}
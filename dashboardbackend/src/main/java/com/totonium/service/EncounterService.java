@@ -1,16 +1,30 @@
 package com.totonium.service;
 
+import com.totonium.dto.CombatantDTO;
+import com.totonium.dto.EncounterAggregateDTO;
 import com.totonium.dto.EncounterDTO;
+import com.totonium.dto.EncounterSummaryDTO;
+import com.totonium.dto.EncounterSummaryPageDTO;
+import com.totonium.dto.StatblockSummaryDTO;
+import com.totonium.entity.Combatant;
 import com.totonium.entity.Encounter;
+import com.totonium.entity.Statblock;
 import com.totonium.exception.ResourceNotFoundException;
+import com.totonium.repository.CombatantRepository;
 import com.totonium.repository.EncounterRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -19,7 +33,14 @@ import java.util.stream.Collectors;
 @Slf4j
 public class EncounterService {
 
+    private static final int MAX_SUMMARY_PAGE_SIZE = 100;
+
     private final EncounterRepository encounterRepository;
+    private final CombatantRepository combatantRepository;
+    private final CombatantService combatantService;
+    private final StatblockService statblockService;
+    private final EncounterArchiveService encounterArchiveService;
+    private final TurnReminderService turnReminderService;
 
     @Transactional(readOnly = true)
     public List<EncounterDTO> findAll() {
@@ -31,17 +52,67 @@ public class EncounterService {
         return encounters;
     }
 
+    /**
+     * Lists encounter summaries newest first using keyset pagination on (createdAt, id).
+     */
+    @Transactional(readOnly = true)
+    public EncounterSummaryPageDTO findSummaries(@Nullable Boolean isCompleted, @Nullable UUID campaignId,
+                                                 @Nullable LocalDateTime afterCreatedAt, @Nullable UUID afterId,
+                                                 int limit) {
+        if ((afterCreatedAt == null) != (afterId == null)) {
+            throw new IllegalArgumentException("afterCreatedAt and afterId must be provided together");
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_SUMMARY_PAGE_SIZE));
+        log.debug("Finding encounter summaries: isCompleted={}, campaignId={}, after=({}, {}), limit={}",
+                isCompleted, campaignId, afterCreatedAt, afterId, pageSize);
+
+        // Explicit filter flags instead of ":param IS NULL" so PostgreSQL never has to infer a null's type.
+        // One extra row is fetched to learn whether another page exists.
+        List<EncounterSummaryDTO> rows = encounterRepository.findSummaries(
+                isCompleted != null, isCompleted,
+                campaignId != null, campaignId,
+                afterCreatedAt != null, afterCreatedAt, afterId,
+                Limit.of(pageSize + 1));
+        if (rows.size() <= pageSize) {
+            return new EncounterSummaryPageDTO(rows, null, null);
+        }
+        List<EncounterSummaryDTO> page = rows.subList(0, pageSize);
+        EncounterSummaryDTO last = page.get(pageSize - 1);
+        return new EncounterSummaryPageDTO(new ArrayList<>(page), last.createdAt(), last.id());
+    }
+
     @Transactional(readOnly = true)
     public EncounterDTO findById(UUID id) {
         log.debug("Finding encounter by id: {}", id);
-        Encounter encounter = encounterRepository.findById(id)
-                .orElseThrow(() -> {
-                    log.warn("Encounter not found with id: {}", id);
-                    return new ResourceNotFoundException("Encounter", id);
-                });
+        Encounter encounter = loadEncounter(id);
         return toDTO(encounter);
     }
 
+    /**
+     * Loads the encounter, its ordered combatants and their statblocks in two queries
+     * (encounter by id, combatants join-fetched with their statblock).
+     */
+    @Transactional(readOnly = true)
+    public EncounterAggregateDTO findAggregateById(UUID id) {
+        log.debug("Finding encounter aggregate by id: {}", id);
+        Encounter encounter = loadEncounter(id);
+
+        List<Combatant> combatants = combatantRepository.findByEncounterIdWithStatblock(id);
+        List<CombatantDTO> combatantDTOs = new ArrayList<>(combatants.size());
+        Map<UUID, StatblockSummaryDTO> statblocks = new LinkedHashMap<>();
+        for (Combatant combatant : combatants) {
+            combatantDTOs.add(combatantService.toDTO(combatant));
+            Statblock statblock = combatant.getStatblock();
+            if (statblock != null) {
+                statblocks.computeIfAbsent(statblock.getId(), key -> statblockService.toSummaryDTO(statblock));
+            }
+        }
+
+        log.debug("Loaded encounter {} with {} combatants and {} statblocks",
+                id, combatantDTOs.size(), statblocks.size());
+        return new EncounterAggregateDTO(toDTO(encounter), combatantDTOs, new ArrayList<>(statblocks.values()));
+    }
+
     @Transactional
     public EncounterDTO create(EncounterDTO request) {
         log.info("Creating encounter: {}", request.name());
@@ -64,11 +135,7 @@ public class EncounterService {
     public EncounterDTO update(UUID id, EncounterDTO request) {
         log.info("Updating encounter with id: {}", id);
         
-        Encounter encounter = encounterRepository.findById(id)
-                .orElseThrow(() -> {
-                    log.warn("Encounter not found with id: {}", id);
-                    return new ResourceNotFoundException("Encounter", id);
-                });
+        Encounter encounter = loadEncounter(id);
 
         if (request.name() != null) encounter.setName(request.name());
         if (request.description() != null) encounter.setDescription(request.description());
@@ -89,13 +156,29 @@ public class EncounterService {
         log.info("Deleting encounter with id: {}", id);
         
         if (!encounterRepository.existsById(id)) {
+            if (encounterArchiveService.deleteArchived(id)) {
+                return;
+            }
             log.warn("Encounter not found with id: {}", id);
             throw new ResourceNotFoundException("Encounter", id);
         }
         encounterRepository.deleteById(id);
+        turnReminderService.invalidate(id);
         log.info("Deleted encounter with id: {}", id);
     }
 
+    /**
+     * Finds an encounter in the hot table, transparently rehydrating it from the archive if needed.
+     */
+    private Encounter loadEncounter(UUID id) {
+        return encounterRepository.findById(id)
+                .or(() -> encounterArchiveService.rehydrate(id) ? encounterRepository.findById(id) : Optional.empty())
+                .orElseThrow(() -> {
+                    log.warn("Encounter not found with id: {}", id);
+                    return new ResourceNotFoundException("Encounter", id);
+                });
+    }
+
     private EncounterDTO toDTO(Encounter entity) {
         return new EncounterDTO(
                 entity.getId(),
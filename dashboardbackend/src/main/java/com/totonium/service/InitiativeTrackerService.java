@@ -1,6 +1,7 @@
 package com.totonium.service;
 
 import com.totonium.dto.CombatantDTO;
+import com.totonium.dto.TurnDTO;
 import com.totonium.entity.Combatant;
 import com.totonium.exception.ResourceNotFoundException;
 import com.totonium.repository.CombatantRepository;
@@ -20,10 +21,11 @@ public class InitiativeTrackerService {
 
     private final CombatantService combatantService;
     private final CombatantRepository combatantRepository;
+    private final TurnReminderService turnReminderService;
 
     @Transactional
     public List<CombatantDTO> sortByInitiative(UUID encounterId) {
-        List<Combatant> combatants = combatantRepository.findByEncounterIdOrderByCombatOrderAsc(encounterId);
+        List<Combatant> combatants = combatantService.findCombatants(encounterId);
 
         List<Combatant> sorted = combatants.stream()
                 .sorted(Comparator.comparingInt(Combatant::getInitiative).reversed())
@@ -34,15 +36,20 @@ public class InitiativeTrackerService {
         }
 
         combatantRepository.saveAll(sorted);
+        combatantRepository.flush();
+        turnReminderService.compile(encounterId);
 
         return sorted.stream()
                 .map(c -> combatantService.findById(c.getId()))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Advances to the next combatant and returns the reminders precompiled for the start of its turn.
+     */
     @Transactional
-    public CombatantDTO nextTurn(UUID encounterId) {
-        List<Combatant> combatants = combatantRepository.findByEncounterIdOrderByCombatOrderAsc(encounterId);
+    public TurnDTO nextTurn(UUID encounterId) {
+        List<Combatant> combatants = combatantService.findCombatants(encounterId);
 
         if (combatants.isEmpty()) {
             throw new ResourceNotFoundException("No combatants found in encounter", encounterId);
@@ -66,16 +73,19 @@ public class InitiativeTrackerService {
         next.setIsActive(true);
         combatantRepository.save(next);
 
-        return combatantService.findById(next.getId());
+        return new TurnDTO(
+                combatantService.findById(next.getId()),
+                turnReminderService.remindersFor(encounterId, next.getId()));
     }
 
     @Transactional
     public void clearEncounter(UUID encounterId) {
-        List<Combatant> combatants = combatantRepository.findByEncounterIdOrderByCombatOrderAsc(encounterId);
+        List<Combatant> combatants = combatantService.findCombatants(encounterId);
         combatants.forEach(c -> {
             c.setIsActive(false);
             c.setCombatOrder(null);
         });
         combatantRepository.saveAll(combatants);
+        turnReminderService.invalidate(encounterId);
     }
 }
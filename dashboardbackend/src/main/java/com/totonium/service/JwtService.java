@@ -2,32 +2,73 @@ package com.totonium.service;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Issues and verifies JWTs. The signing key and parser are built once at startup; both are immutable and shared.
+ * <p>
+ * Verified claims are cached by the SHA-256 digest of the token until the token's expiry, so repeat requests with
+ * the same token skip signature verification and JSON parsing. The cache is an LRU bounded by
+ * {@code app.jwt.verified-cache-size}; raw tokens are not kept in it. Revocation is checked on every call, cached
+ * or not, through {@link TokenRevocationService}.
+ */
 @Service
+@RequiredArgsConstructor
 public class JwtService {
 
+    private final TokenRevocationService tokenRevocationService;
+
     @Value("${app.jwt.secret}")
     private String jwtSecret;
 
     @Value("${app.jwt.expiration}")
     private long jwtExpiration;
 
-    private final ConcurrentHashMap<String, Instant> tokenBlacklist = new ConcurrentHashMap<>();
+    @Value("${app.jwt.verified-cache-size:4096}")
+    private int verifiedCacheSize;
+
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private Map<String, VerifiedToken> verifiedTokens;
+
+    private record VerifiedToken(Claims claims, long expiresAt) {
+    }
+
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parser()
+                .verifyWith(signingKey)
+                .build();
+        verifiedTokens = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedToken> eldest) {
+                return size() > verifiedCacheSize;
+            }
+        };
+    }
 
     public String generateToken(UUID userId, String deviceFingerprint) {
         Instant now = Instant.now();
         Instant expiry = now.plus(jwtExpiration, ChronoUnit.MILLIS);
 
         JwtBuilder builder = Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(userId.toString())
                 .issuedAt(Date.from(now))
                 .expiration(Date.from(expiry));
@@ -36,63 +77,82 @@ public class JwtService {
             builder.claim("deviceFingerprint", deviceFingerprint);
         }
 
-        return builder.signWith(getSigningKey()).compact();
+        return builder.signWith(signingKey).compact();
     }
 
     public UUID validateTokenAndGetUserId(String token) {
-        if (isTokenInvalidated(token)) {
+        Claims claims = verify(token);
+        if (tokenRevocationService.isRevoked(tokenId(token, claims))) {
             throw new JwtException("Token has been invalidated");
         }
-        
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
 
         return UUID.fromString(claims.getSubject());
     }
 
     public String getDeviceFingerprintFromToken(String token) {
-        Claims claims = Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
-
-        return claims.get("deviceFingerprint", String.class);
+        return verify(token).get("deviceFingerprint", String.class);
     }
 
+    /**
+     * Revokes the token until it expires. Tokens that no longer verify are rejected anyway and are not recorded.
+     */
     public void invalidateToken(String token) {
+        Claims claims;
         try {
-            Claims claims = Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token)
-                    .getPayload();
-            
-            Date expiration = claims.getExpiration();
-            if (expiration != null) {
-                tokenBlacklist.put(token, expiration.toInstant());
-            }
-        } catch (Exception e) {
-            tokenBlacklist.put(token, Instant.now().plus(24, ChronoUnit.HOURS));
+            claims = verify(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return;
         }
+        // Every token issued here has an exp; one without would otherwise never need forgetting
+        Instant expiresAt = claims.getExpiration() != null
+                ? claims.getExpiration().toInstant()
+                : Instant.now().plus(jwtExpiration, ChronoUnit.MILLIS);
+        tokenRevocationService.revoke(tokenId(token, claims), expiresAt);
     }
 
-    public boolean isTokenInvalidated(String token) {
-        Instant blacklistExpiry = tokenBlacklist.get(token);
-        if (blacklistExpiry == null) {
-            return false;
+    /**
+     * Returns the token's claims, verifying its signature and expiry unless it was verified before and has not
+     * expired since.
+     *
+     * @throws JwtException if the token is malformed, forged or expired
+     */
+    private Claims verify(String token) {
+        String digest = digest(token);
+        long now = System.currentTimeMillis();
+        synchronized (verifiedTokens) {
+            VerifiedToken cached = verifiedTokens.get(digest);
+            if (cached != null) {
+                if (now < cached.expiresAt()) {
+                    return cached.claims();
+                }
+                verifiedTokens.remove(digest);
+            }
         }
-        if (Instant.now().isAfter(blacklistExpiry)) {
-            tokenBlacklist.remove(token);
-            return false;
+
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        Date expiration = claims.getExpiration();
+        // Tokens without an expiry are re-verified every time rather than trusted indefinitely
+        if (expiration != null) {
+            synchronized (verifiedTokens) {
+                verifiedTokens.put(digest, new VerifiedToken(claims, expiration.getTime()));
+            }
         }
-        return true;
+        return claims;
     }
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes());
+    /**
+     * The jti claim, or for tokens issued before it was added, the token's digest.
+     */
+    private static String tokenId(String token, Claims claims) {
+        return claims.getId() != null ? claims.getId() : digest(token);
+    }
+
+    private static String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 }
@@ -0,0 +1,77 @@
+package com.totonium.service;
+
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Stores objects as files below {@code app.audio.upload-dir}, the layout used before storage backends existed.
+ * Staging files live on the same filesystem, so storing one is a rename.
+ */
+@Service
+@ConditionalOnProperty(name = "app.audio.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalAudioStorage implements AudioStorage {
+
+    @Value("${app.audio.upload-dir:uploads/audio}")
+    private String uploadDir;
+
+    @Override
+    public void put(String key, Path file) throws IOException {
+        Path target = root().resolve(key);
+        Files.createDirectories(target.getParent());
+        Files.move(file, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public @Nullable StoredObject stat(String key) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(root().resolve(key), BasicFileAttributes.class);
+            return new StoredObject(attributes.size(), attributes.lastModifiedTime().toMillis());
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(root().resolve(key));
+    }
+
+    @Override
+    public ReadableByteChannel open(String key, long offset, long count) throws IOException {
+        return FileChannel.open(root().resolve(key), StandardOpenOption.READ).position(offset);
+    }
+
+    @Override
+    public void transferTo(String key, long offset, long count, WritableByteChannel target) throws IOException {
+        try (FileChannel file = FileChannel.open(root().resolve(key), StandardOpenOption.READ)) {
+            long position = offset;
+            long end = offset + count;
+            while (position < end) {
+                long sent = file.transferTo(position, end - position, target);
+                if (sent <= 0) {
+                    throw new IOException("Unexpected end of file " + key + " at offset " + position);
+                }
+                position += sent;
+            }
+        }
+    }
+
+    @Override
+    public Path root() {
+        return Paths.get(uploadDir);
+    }
+}
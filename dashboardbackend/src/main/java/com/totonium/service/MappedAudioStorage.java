@@ -0,0 +1,110 @@
+package com.totonium.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Local filesystem store that serves reads from read-only memory mappings. An object is mapped on its first read
+ * and stays mapped, least recently used first out, while the mappings fit in
+ * {@code app.audio.storage.mmap.max-mapped-bytes} of address space; repeated streams of it then copy straight from
+ * the page cache without a file open or a system call per range. Objects never change once written, so a mapping
+ * cannot go stale.
+ * <p>
+ * Evicted mappings are released by the garbage collector, so the limit bounds reachable mappings, not the exact
+ * address space in use at any moment.
+ */
+@Service
+@ConditionalOnProperty(name = "app.audio.storage.type", havingValue = "mmap")
+@Slf4j
+public class MappedAudioStorage extends LocalAudioStorage {
+
+    @Value("${app.audio.storage.mmap.max-mapped-bytes:1GB}")
+    private DataSize maxMappedBytes;
+
+    private final Map<String, MappedByteBuffer> mappings = new LinkedHashMap<>(16, 0.75f, true);
+    private long mappedBytes;
+
+    @Override
+    public void delete(String key) throws IOException {
+        unmap(key);
+        super.delete(key);
+    }
+
+    @Override
+    public void transferTo(String key, long offset, long count, WritableByteChannel target) throws IOException {
+        ByteBuffer mapped = mapped(key);
+        if (mapped == null) {
+            super.transferTo(key, offset, count, target);
+            return;
+        }
+        ByteBuffer slice = mapped.slice((int) offset, (int) count);
+        while (slice.hasRemaining()) {
+            target.write(slice);
+        }
+    }
+
+    @Override
+    public @Nullable ByteBuffer mapped(String key) {
+        synchronized (mappings) {
+            MappedByteBuffer mapping = mappings.get(key);
+            if (mapping != null) {
+                return mapping.duplicate();
+            }
+        }
+
+        Path path = localPath(key);
+        MappedByteBuffer mapping;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0 || size > Integer.MAX_VALUE || size > maxMappedBytes.toBytes()) {
+                return null;
+            }
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("Failed to map audio object {}: {}", key, e.getMessage());
+            return null;
+        }
+
+        synchronized (mappings) {
+            MappedByteBuffer existing = mappings.get(key);
+            if (existing != null) {
+                return existing.duplicate();
+            }
+            Iterator<MappedByteBuffer> eldest = mappings.values().iterator();
+            while (mappedBytes + mapping.capacity() > maxMappedBytes.toBytes() && eldest.hasNext()) {
+                mappedBytes -= eldest.next().capacity();
+                eldest.remove();
+            }
+            mappings.put(key, mapping);
+            mappedBytes += mapping.capacity();
+            return mapping.duplicate();
+        }
+    }
+
+    private void unmap(String key) {
+        synchronized (mappings) {
+            MappedByteBuffer mapping = mappings.remove(key);
+            if (mapping != null) {
+                mappedBytes -= mapping.capacity();
+            }
+        }
+    }
+}
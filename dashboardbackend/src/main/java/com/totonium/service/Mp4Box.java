@@ -0,0 +1,85 @@
+package com.totonium.service;
+
+import org.jspecify.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.totonium.service.AudioProbe.readAt;
+
+/**
+ * An ISO base media (MP4/M4A) box located by reading only its header.
+ *
+ * @param type      four-character box type
+ * @param start     file offset of the box header
+ * @param bodyStart file offset of the box payload
+ * @param end       file offset just past the box
+ */
+public record Mp4Box(String type, long start, long bodyStart, long end) {
+
+    public long size() {
+        return end - start;
+    }
+
+    /**
+     * Reads the box header at {@code position}, or returns null if no valid box fits before {@code limit}.
+     */
+    public static @Nullable Mp4Box read(FileChannel channel, long position, long limit) throws IOException {
+        if (position + 8 > limit) {
+            return null;
+        }
+        ByteBuffer header = readAt(channel, position, 16);
+        if (header.remaining() < 8) {
+            return null;
+        }
+
+        long size = header.getInt(0) & 0xFFFFFFFFL;
+        int headerSize = 8;
+        if (size == 1) {
+            if (header.remaining() < 16) {
+                return null;
+            }
+            size = header.getLong(8);
+            headerSize = 16;
+        } else if (size == 0) {
+            size = limit - position;
+        }
+        if (size < headerSize || position + size > limit) {
+            return null;
+        }
+
+        byte[] type = new byte[4];
+        header.get(4, type);
+        return new Mp4Box(new String(type, StandardCharsets.ISO_8859_1), position, position + headerSize, position + size);
+    }
+
+    /**
+     * Lists the boxes laid out back to back in {@code [start, end)}, stopping at the first malformed header.
+     */
+    public static List<Mp4Box> children(FileChannel channel, long start, long end) throws IOException {
+        List<Mp4Box> boxes = new ArrayList<>();
+        Mp4Box box;
+        long position = start;
+        while ((box = read(channel, position, end)) != null) {
+            boxes.add(box);
+            position = box.end();
+        }
+        return boxes;
+    }
+
+    public static @Nullable Mp4Box find(FileChannel channel, long start, long end, String type) throws IOException {
+        Mp4Box box;
+        long position = start;
+        while ((box = read(channel, position, end)) != null) {
+            if (box.type().equals(type)) {
+                return box;
+            }
+            position = box.end();
+        }
+        return null;
+    }
+}
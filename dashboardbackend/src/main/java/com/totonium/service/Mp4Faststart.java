@@ -0,0 +1,152 @@
+package com.totonium.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rewrites MP4/M4A files whose moov atom follows the media data so that moov comes first ("faststart"),
+ * letting players start without fetching the end of the file.
+ * <p>
+ * Media data is copied with {@link FileChannel#transferTo}; only the relocated moov is memory-mapped in the output
+ * to shift its stco/co64 chunk offsets by the moov size.
+ */
+public final class Mp4Faststart {
+
+    // Boxes on the path from moov down to the chunk offset tables
+    private static final Set<String> CONTAINERS = Set.of("moov", "trak", "mdia", "minf", "stbl");
+
+    private Mp4Faststart() {
+    }
+
+    /**
+     * Writes a faststart copy of {@code source} to {@code target}.
+     *
+     * @return false, leaving {@code target} unspecified, if the file is not an MP4 with a trailing moov
+     * or cannot be relocated safely
+     */
+    public static boolean rewrite(Path source, Path target) throws IOException {
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = in.size();
+            List<Mp4Box> boxes = Mp4Box.children(in, 0, size);
+            if (boxes.isEmpty() || !boxes.get(0).type().equals("ftyp") || boxes.get(boxes.size() - 1).end() != size) {
+                return false;
+            }
+
+            Mp4Box moov = null;
+            Mp4Box firstMdat = null;
+            for (Mp4Box box : boxes) {
+                switch (box.type()) {
+                    case "moov" -> moov = moov == null ? box : moov;
+                    case "mdat" -> firstMdat = firstMdat == null ? box : firstMdat;
+                    // Fragmented files keep per-fragment offsets; leave them alone
+                    case "moof" -> {
+                        return false;
+                    }
+                    default -> {
+                    }
+                }
+            }
+            if (moov == null || firstMdat == null || moov.start() < firstMdat.start() || moov.size() > Integer.MAX_VALUE) {
+                return false;
+            }
+
+            long insertAt = firstMdat.start();
+            try (FileChannel out = FileChannel.open(target, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                transfer(in, 0, insertAt, out);
+                transfer(in, moov.start(), moov.size(), out);
+                transfer(in, insertAt, moov.start() - insertAt, out);
+                transfer(in, moov.end(), size - moov.end(), out);
+
+                MappedByteBuffer relocated = out.map(FileChannel.MapMode.READ_WRITE, insertAt, moov.size());
+                Shift shift = new Shift(insertAt, moov.start(), moov.size());
+                if (!patchChunkOffsets(relocated, 0, (int) moov.size(), shift)) {
+                    return false;
+                }
+                relocated.force();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Data that sat between the insertion point and the old moov moves forward by the moov size;
+     * data after the old moov keeps its offset.
+     */
+    private record Shift(long insertAt, long oldMoovStart, long moovSize) {
+        long apply(long offset) {
+            return offset >= insertAt && offset < oldMoovStart ? offset + moovSize : offset;
+        }
+    }
+
+    private static boolean patchChunkOffsets(ByteBuffer moov, int start, int end, Shift shift) {
+        int position = start;
+        while (position + 8 <= end) {
+            long boxSize = moov.getInt(position) & 0xFFFFFFFFL;
+            int headerSize = 8;
+            if (boxSize == 1) {
+                if (position + 16 > end) {
+                    return false;
+                }
+                boxSize = moov.getLong(position + 8);
+                headerSize = 16;
+            } else if (boxSize == 0) {
+                boxSize = end - position;
+            }
+            if (boxSize < headerSize || position + boxSize > end) {
+                return false;
+            }
+
+            byte[] typeBytes = new byte[4];
+            moov.get(position + 4, typeBytes);
+            String type = new String(typeBytes, StandardCharsets.ISO_8859_1);
+            int body = position + headerSize;
+            int boxEnd = (int) (position + boxSize);
+
+            if (CONTAINERS.contains(type)) {
+                if (!patchChunkOffsets(moov, body, boxEnd, shift)) {
+                    return false;
+                }
+            } else if (type.equals("stco") || type.equals("co64")) {
+                int entrySize = type.equals("stco") ? 4 : 8;
+                long count = moov.getInt(body + 4) & 0xFFFFFFFFL;
+                if (body + 8 + count * entrySize > boxEnd) {
+                    return false;
+                }
+                for (int i = 0; i < count; i++) {
+                    int index = body + 8 + i * entrySize;
+                    if (entrySize == 4) {
+                        long offset = shift.apply(moov.getInt(index) & 0xFFFFFFFFL);
+                        // Would need an stco -> co64 upgrade, which changes the moov size
+                        if (offset > 0xFFFFFFFFL) {
+                            return false;
+                        }
+                        moov.putInt(index, (int) offset);
+                    } else {
+                        moov.putLong(index, shift.apply(moov.getLong(index)));
+                    }
+                }
+            }
+            position = boxEnd;
+        }
+        return true;
+    }
+
+    private static void transfer(FileChannel in, long position, long count, FileChannel out) throws IOException {
+        long end = position + count;
+        while (position < end) {
+            long sent = in.transferTo(position, end - position, out);
+            if (sent <= 0) {
+                throw new IOException("Unexpected end of file at offset " + position);
+            }
+            position += sent;
+        }
+    }
+}
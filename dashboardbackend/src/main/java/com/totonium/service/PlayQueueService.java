@@ -0,0 +1,383 @@
+package com.totonium.service;
+
+import com.totonium.dto.CreatePlayQueueRequest;
+import com.totonium.dto.PlayQueueDTO;
+import com.totonium.dto.PlayQueueDTO.Repeat;
+import com.totonium.dto.PlayQueueEntryDTO;
+import com.totonium.dto.PlayQueueModeRequest;
+import com.totonium.entity.Audio;
+import com.totonium.exception.ResourceNotFoundException;
+import com.totonium.repository.AudioRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Server-side play queues over playlists, so clients know what comes next and can fetch its first seconds before
+ * the current track ends instead of after.
+ * <p>
+ * The play order is a Fisher-Yates shuffle driven by {@link Random} with the queue's seed, which is specified to
+ * give the same sequence on every JVM: the same seed over the same playlist always plays in the same order, and
+ * each repeat cycle reshuffles with a seed derived from it. Queues snapshot the playlist's tracks when created and
+ * live in memory until they have been idle for {@code expire-after}.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PlayQueueService {
+
+    private static final long CYCLE_SEED_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final int MAX_LOOKAHEAD = 20;
+
+    private final PlaylistService playlistService;
+    private final AudioRepository audioRepository;
+
+    @Value("${app.audio.queue.lookahead:3}")
+    private int defaultLookahead;
+
+    @Value("${app.audio.queue.preload-seconds:10}")
+    private long preloadSeconds;
+
+    @Value("${app.audio.queue.preload-min-bytes:256KB}")
+    private DataSize preloadMinBytes;
+
+    @Value("${app.audio.queue.expire-after:12h}")
+    private Duration expireAfter;
+
+    private final Map<UUID, PlayQueue> queues = new ConcurrentHashMap<>();
+
+    public PlayQueueDTO create(String owner, CreatePlayQueueRequest request, @Nullable Integer lookahead) {
+        List<UUID> tracks = playlistService.findTrackIds(request.playlistId());
+        Integer startIndex = request.startIndex();
+        if (startIndex != null && startIndex >= tracks.size()) {
+            throw new IllegalArgumentException("Start index " + startIndex + " is out of range for "
+                    + tracks.size() + " tracks");
+        }
+
+        long seed = request.seed() != null ? request.seed() : ThreadLocalRandom.current().nextLong();
+        Repeat repeat = request.repeat() != null ? request.repeat() : Repeat.OFF;
+        PlayQueue queue = new PlayQueue(UUID.randomUUID(), owner, request.playlistId(), List.copyOf(tracks),
+                request.shuffle(), seed, repeat, startIndex);
+        queues.put(queue.id, queue);
+        log.debug("Created play queue {} over playlist {} ({} tracks, shuffle={}, seed={})",
+                queue.id, request.playlistId(), tracks.size(), request.shuffle(), seed);
+        return toDTO(queue.snapshot(lookahead(lookahead)));
+    }
+
+    public PlayQueueDTO get(String owner, UUID id, @Nullable Integer lookahead) {
+        return toDTO(find(owner, id).snapshot(lookahead(lookahead)));
+    }
+
+    /**
+     * Moves to the next track.
+     *
+     * @param ended true when the current track finished playing rather than being skipped; only then does
+     *              {@link Repeat#ONE} play it again
+     */
+    public PlayQueueDTO next(String owner, UUID id, boolean ended, @Nullable Integer lookahead) {
+        PlayQueue queue = find(owner, id);
+        queue.next(ended);
+        return toDTO(queue.snapshot(lookahead(lookahead)));
+    }
+
+    public PlayQueueDTO previous(String owner, UUID id, @Nullable Integer lookahead) {
+        PlayQueue queue = find(owner, id);
+        queue.previous();
+        return toDTO(queue.snapshot(lookahead(lookahead)));
+    }
+
+    public PlayQueueDTO jump(String owner, UUID id, int position, @Nullable Integer lookahead) {
+        PlayQueue queue = find(owner, id);
+        if (position < 0 || position >= queue.tracks.size()) {
+            throw new IllegalArgumentException("Position " + position + " is out of range for "
+                    + queue.tracks.size() + " tracks");
+        }
+        queue.jump(position);
+        return toDTO(queue.snapshot(lookahead(lookahead)));
+    }
+
+    public PlayQueueDTO changeMode(String owner, UUID id, PlayQueueModeRequest request, @Nullable Integer lookahead) {
+        PlayQueue queue = find(owner, id);
+        queue.changeMode(request.shuffle(), request.seed(), request.repeat());
+        return toDTO(queue.snapshot(lookahead(lookahead)));
+    }
+
+    public void delete(String owner, UUID id) {
+        queues.remove(find(owner, id).id);
+    }
+
+    @Scheduled(fixedDelayString = "${app.audio.queue.sweep-interval:PT10M}")
+    public void expireIdleQueues() {
+        LocalDateTime cutoff = LocalDateTime.now().minus(expireAfter);
+        queues.values().removeIf(queue -> queue.touchedAt.isBefore(cutoff));
+    }
+
+    private PlayQueue find(String owner, UUID id) {
+        PlayQueue queue = queues.get(id);
+        // Other accounts' queues are reported as missing rather than forbidden
+        if (queue == null || !queue.owner.equals(owner)) {
+            throw new ResourceNotFoundException("Play queue", id);
+        }
+        return queue;
+    }
+
+    private int lookahead(@Nullable Integer requested) {
+        if (requested == null) {
+            return defaultLookahead;
+        }
+        if (requested < 0 || requested > MAX_LOOKAHEAD) {
+            throw new IllegalArgumentException("Lookahead must be between 0 and " + MAX_LOOKAHEAD);
+        }
+        return requested;
+    }
+
+    private PlayQueueDTO toDTO(Snapshot snapshot) {
+        Set<UUID> ids = new HashSet<>(snapshot.upcoming().values());
+        if (snapshot.current() != null) {
+            ids.add(snapshot.current());
+        }
+        Map<UUID, Audio> audios = audioRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Audio::getId, Function.identity()));
+
+        PlayQueueEntryDTO current = snapshot.current() != null
+                ? toEntry(snapshot.position(), audios.get(snapshot.current()))
+                : null;
+        List<PlayQueueEntryDTO> upcoming = new ArrayList<>();
+        snapshot.upcoming().forEach((position, audioId) -> {
+            PlayQueueEntryDTO entry = toEntry(position, audios.get(audioId));
+            if (entry != null) {
+                upcoming.add(entry);
+            }
+        });
+
+        return new PlayQueueDTO(
+                snapshot.id(),
+                snapshot.playlistId(),
+                snapshot.shuffle(),
+                snapshot.seed(),
+                snapshot.repeat(),
+                snapshot.position(),
+                snapshot.length(),
+                current,
+                upcoming
+        );
+    }
+
+    /**
+     * @return the entry, or null when the track was deleted or its file is missing since the queue was created
+     */
+    private @Nullable PlayQueueEntryDTO toEntry(int position, @Nullable Audio audio) {
+        if (audio == null || audio.getMissingAt() != null) {
+            return null;
+        }
+        long size = audio.getFileSize() != null ? audio.getFileSize() : 0;
+        return new PlayQueueEntryDTO(
+                position,
+                audio.getId(),
+                audio.getName(),
+                audio.getContentType(),
+                audio.getDurationSeconds(),
+                size,
+                AudioService.etag(audio),
+                "/api/v1/audio/" + audio.getId() + "/stream",
+                "bytes=0-" + (preloadBytes(size, audio.getDurationSeconds()) - 1)
+        );
+    }
+
+    /**
+     * Bytes covering the first {@code preload-seconds} at the track's average bitrate, and at least
+     * {@code preload-min-bytes} so container headers are always included.
+     */
+    private long preloadBytes(long size, @Nullable Long durationSeconds) {
+        long bytes = durationSeconds != null && durationSeconds > 0
+                ? size / durationSeconds * preloadSeconds
+                : 0;
+        return Math.max(1, Math.min(size, Math.max(bytes, preloadMinBytes.toBytes())));
+    }
+
+    /**
+     * @param upcoming audio ids by position, in play order
+     */
+    private record Snapshot(
+            UUID id,
+            UUID playlistId,
+            boolean shuffle,
+            long seed,
+            Repeat repeat,
+            int position,
+            int length,
+            @Nullable UUID current,
+            Map<Integer, UUID> upcoming
+    ) {
+    }
+
+    private static final class PlayQueue {
+        private final UUID id;
+        private final String owner;
+        private final UUID playlistId;
+        private final List<UUID> tracks;
+        // Playlist index played first in cycle 0, when the queue was started on a given track
+        private final @Nullable Integer startIndex;
+        private boolean shuffle;
+        private long seed;
+        private Repeat repeat;
+        private int cycle;
+        private int[] order;
+        private int position;
+        private boolean finished;
+        private volatile LocalDateTime touchedAt = LocalDateTime.now();
+
+        private PlayQueue(UUID id, String owner, UUID playlistId, List<UUID> tracks, boolean shuffle, long seed,
+                          Repeat repeat, @Nullable Integer startIndex) {
+            this.id = id;
+            this.owner = owner;
+            this.playlistId = playlistId;
+            this.tracks = tracks;
+            this.shuffle = shuffle;
+            this.seed = seed;
+            this.repeat = repeat;
+            this.startIndex = startIndex;
+            this.order = order(0);
+            if (!shuffle && startIndex != null) {
+                position = startIndex;
+            }
+        }
+
+        private synchronized void next(boolean ended) {
+            touchedAt = LocalDateTime.now();
+            if (finished || tracks.isEmpty() || (ended && repeat == Repeat.ONE)) {
+                return;
+            }
+            if (position + 1 < order.length) {
+                position++;
+            } else if (repeat == Repeat.OFF) {
+                finished = true;
+            } else {
+                cycle++;
+                order = order(cycle);
+                position = 0;
+            }
+        }
+
+        private synchronized void previous() {
+            touchedAt = LocalDateTime.now();
+            if (tracks.isEmpty()) {
+                return;
+            }
+            if (finished) {
+                finished = false;
+            } else if (position > 0) {
+                position--;
+            } else if (repeat != Repeat.OFF && cycle > 0) {
+                cycle--;
+                order = order(cycle);
+                position = order.length - 1;
+            }
+        }
+
+        private synchronized void jump(int position) {
+            touchedAt = LocalDateTime.now();
+            this.position = position;
+            finished = false;
+        }
+
+        private synchronized void changeMode(boolean shuffle, @Nullable Long seed, Repeat repeat) {
+            touchedAt = LocalDateTime.now();
+            this.repeat = repeat;
+            if (shuffle == this.shuffle && (seed == null || seed == this.seed)) {
+                return;
+            }
+            int currentTrack = order.length > 0 ? order[Math.min(position, order.length - 1)] : -1;
+            this.shuffle = shuffle;
+            if (seed != null) {
+                this.seed = seed;
+            }
+            order = order(cycle);
+            // Keep the current track current in the new order
+            for (int i = 0; i < order.length; i++) {
+                if (order[i] == currentTrack) {
+                    position = i;
+                    break;
+                }
+            }
+        }
+
+        private synchronized Snapshot snapshot(int lookahead) {
+            touchedAt = LocalDateTime.now();
+            Map<Integer, UUID> upcoming = new LinkedHashMap<>();
+            UUID current = null;
+            if (!finished && order.length > 0 && repeat == Repeat.ONE) {
+                current = tracks.get(order[position]);
+                // The track replays when it ends, so it is the only one worth prefetching
+                upcoming.put(position, current);
+            } else if (!finished && order.length > 0) {
+                current = tracks.get(order[position]);
+
+                int[] upcomingOrder = order;
+                int index = position;
+                int upcomingCycle = cycle;
+                for (int i = 1; i <= lookahead; i++) {
+                    index++;
+                    if (index >= upcomingOrder.length) {
+                        if (repeat == Repeat.OFF) {
+                            break;
+                        }
+                        upcomingCycle++;
+                        upcomingOrder = order(upcomingCycle);
+                        index = 0;
+                    }
+                    upcoming.put(position + i, tracks.get(upcomingOrder[index]));
+                }
+            }
+            return new Snapshot(id, playlistId, shuffle, seed, repeat, finished ? order.length : position,
+                    order.length, current, upcoming);
+        }
+
+        /**
+         * Playlist indexes in play order for a repeat cycle.
+         */
+        private int[] order(int cycle) {
+            int[] order = IntStream.range(0, tracks.size()).toArray();
+            if (!shuffle) {
+                return order;
+            }
+            Random random = new Random(seed + cycle * CYCLE_SEED_GAMMA);
+            for (int i = order.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+            if (cycle == 0 && startIndex != null) {
+                for (int i = 0; i < order.length; i++) {
+                    if (order[i] == startIndex) {
+                        order[i] = order[0];
+                        order[0] = startIndex;
+                        break;
+                    }
+                }
+            }
+            return order;
+        }
+    }
+}
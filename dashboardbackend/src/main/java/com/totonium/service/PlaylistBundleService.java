@@ -0,0 +1,147 @@
+package com.totonium.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.totonium.dto.PlaylistBundleManifestDTO;
+import com.totonium.service.AudioService.StreamSource;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Streams a whole playlist for offline use as one multipart/form-data response, which browsers parse natively with
+ * {@code Response.formData()}. The first part is a JSON manifest; each distinct track file follows as a part named
+ * after its ETag, streamed from storage through a small buffer and never held in memory whole. The manifest lists
+ * each track's SHA-256, so clients can verify the parts they receive.
+ * <p>
+ * A client refreshing its offline copy sends the ETags it already holds in If-None-Match: tracks with those ETags
+ * are listed in the manifest but not re-sent, and a matching bundle ETag yields 304. Track ETags are the same ones
+ * the stream endpoint uses, so content cached from either source counts.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PlaylistBundleService {
+
+    private final PlaylistService playlistService;
+    private final AudioService audioService;
+    private final AudioStreamService audioStreamService;
+    private final ObjectMapper objectMapper;
+
+    public void write(UUID playlistId, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        List<StreamSource> sources = audioService.findStreamSources(playlistService.findTrackIds(playlistId));
+        String bundleEtag = bundleEtag(sources);
+
+        // The body depends on which ETags the client sent, so shared caches must not store it
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        if (new ServletWebRequest(request, response).checkNotModified(bundleEtag)) {
+            return;
+        }
+
+        Set<String> held = heldEtags(request);
+        Map<String, StreamSource> parts = new LinkedHashMap<>();
+        List<PlaylistBundleManifestDTO.Track> tracks = new ArrayList<>(sources.size());
+        for (StreamSource source : sources) {
+            boolean included = !held.contains(source.etag());
+            if (included) {
+                parts.putIfAbsent(source.etag(), source);
+            }
+            tracks.add(new PlaylistBundleManifestDTO.Track(source.id(), source.name(), source.contentType(),
+                    source.length(), source.contentHash(), source.etag(), included));
+        }
+        byte[] manifest = objectMapper.writeValueAsBytes(new PlaylistBundleManifestDTO(playlistId, bundleEtag, tracks));
+
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        byte[] manifestHeader = partHeader(boundary, "manifest", null, MediaType.APPLICATION_JSON_VALUE, manifest.length);
+        List<byte[]> fileHeaders = new ArrayList<>(parts.size());
+        long contentLength = manifestHeader.length + manifest.length;
+        for (StreamSource source : parts.values()) {
+            byte[] header = partHeader(boundary, unquote(source.etag()), source.name(), source.contentType(),
+                    source.length());
+            fileHeaders.add(header);
+            contentLength += header.length + source.length();
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(MediaType.MULTIPART_FORM_DATA_VALUE + "; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        ServletOutputStream out = response.getOutputStream();
+        WritableByteChannel channel = Channels.newChannel(out);
+        out.write(manifestHeader);
+        out.write(manifest);
+        int i = 0;
+        for (StreamSource source : parts.values()) {
+            out.write(fileHeaders.get(i++));
+            audioStreamService.transferAll(source, channel);
+        }
+        out.write(closing);
+        log.info("Sent bundle of playlist {}: {} of {} tracks", playlistId, parts.size(), sources.size());
+    }
+
+    private byte[] partHeader(String boundary, String name, @Nullable String fileName, String contentType, long length) {
+        ContentDisposition.Builder disposition = ContentDisposition.formData().name(name);
+        if (fileName != null) {
+            disposition.filename(fileName);
+        }
+        return ("\r\n--" + boundary + "\r\n"
+                + HttpHeaders.CONTENT_DISPOSITION + ": " + disposition.build() + "\r\n"
+                + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                + HttpHeaders.CONTENT_LENGTH + ": " + length + "\r\n\r\n")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Derives the bundle ETag from the ordered track list and each track's content.
+     */
+    private String bundleEtag(List<StreamSource> sources) {
+        MessageDigest digest = AudioBlobService.newContentDigest();
+        for (StreamSource source : sources) {
+            digest.update((source.id() + ":" + source.name() + ":" + source.etag() + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+        return "\"bundle-" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+    }
+
+    private Set<String> heldEtags(HttpServletRequest request) {
+        Set<String> etags = new HashSet<>();
+        for (String header : Collections.list(request.getHeaders(HttpHeaders.IF_NONE_MATCH))) {
+            for (String etag : header.split(",")) {
+                String trimmed = etag.trim();
+                etags.add(trimmed.startsWith("W/") ? trimmed.substring(2) : trimmed);
+            }
+        }
+        return etags;
+    }
+
+    private static String unquote(String etag) {
+        return etag.length() >= 2 && etag.startsWith("\"") ? etag.substring(1, etag.length() - 1) : etag;
+    }
+}
@@ -2,36 +2,58 @@ package com.totonium.service;
 
 import com.totonium.dto.PlaylistDTO;
 import com.totonium.entity.Playlist;
+import com.totonium.entity.PlaylistTrack;
 import com.totonium.exception.ResourceNotFoundException;
 import com.totonium.repository.PlaylistRepository;
+import com.totonium.repository.PlaylistTrackRepository;
 import com.totonium.repository.AudioRepository;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
+/**
+ * Playlists and their track order, kept in playlist_tracks. Track edits (append, insert, move, remove) touch only
+ * the affected entry: positions are spaced {@link #POSITION_GAP} apart, so an entry takes a value between its new
+ * neighbours, and the playlist is renumbered only once such a gap is used up.
+ */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PlaylistService {
 
+    private static final long POSITION_GAP = 1L << 16;
+
     private final PlaylistRepository playlistRepository;
+    private final PlaylistTrackRepository playlistTrackRepository;
     private final AudioRepository audioRepository;
+    private final AudioPackService audioPackService;
     private final ObjectMapper objectMapper = new ObjectMapper();
 
     @Transactional(readOnly = true)
     public List<PlaylistDTO> findAll() {
-        return playlistRepository.findAll().stream()
-                .map(this::toDTO)
+        List<Playlist> playlists = playlistRepository.findAll();
+        Map<UUID, List<UUID>> trackIds = playlistTrackRepository
+                .findAudioIdsByPlaylistIdIn(playlists.stream().map(Playlist::getId).toList()).stream()
+                .collect(Collectors.groupingBy(PlaylistTrackRepository.TrackRef::getPlaylistId,
+                        Collectors.mapping(PlaylistTrackRepository.TrackRef::getAudioId, Collectors.toList())));
+        return playlists.stream()
+                .map(playlist -> toDTO(playlist, trackIds.getOrDefault(playlist.getId(), List.of())))
                 .toList();
     }
 
@@ -42,25 +64,35 @@ public class PlaylistService {
         return toDTO(playlist);
     }
 
+    @Transactional(readOnly = true)
+    public List<UUID> findTrackIds(UUID id) {
+        if (!playlistRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Playlist", id);
+        }
+        return playlistTrackRepository.findAudioIdsByPlaylistId(id);
+    }
+
     @Transactional
     public PlaylistDTO create(PlaylistDTO dto) {
         List<UUID> validatedTrackIds = validateAndFilterTrackIds(dto.trackIds());
-        
+
         Playlist playlist = Playlist.builder()
                 .name(dto.name())
                 .description(dto.description() != null ? dto.description() : "")
-                .trackIds(serializeTrackIds(validatedTrackIds))
                 .build();
 
         Playlist saved = playlistRepository.save(playlist);
+        insertTracks(saved.getId(), validatedTrackIds);
         log.info("Created playlist: {}", saved.getName());
-        return toDTO(saved);
+        return toDTO(saved, validatedTrackIds);
     }
 
+    /**
+     * Updates name and description, and replaces the whole track list when one is given.
+     */
     @Transactional
     public PlaylistDTO update(UUID id, PlaylistDTO dto) {
-        Playlist playlist = playlistRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Playlist", id));
+        Playlist playlist = lockPlaylist(id);
 
         if (dto.name() != null) {
             playlist.setName(dto.name());
@@ -70,62 +102,193 @@ public class PlaylistService {
         }
         if (dto.trackIds() != null) {
             List<UUID> validatedTrackIds = validateAndFilterTrackIds(dto.trackIds());
-            playlist.setTrackIds(serializeTrackIds(validatedTrackIds));
+            playlistTrackRepository.deleteByPlaylistId(id);
+            insertTracks(id, validatedTrackIds);
+            playlist.setUpdatedAt(LocalDateTime.now());
         }
 
         Playlist saved = playlistRepository.save(playlist);
+        audioPackService.playlistChangedAfterCommit(id);
         log.info("Updated playlist: {}", saved.getName());
         return toDTO(saved);
     }
 
+    /**
+     * Inserts a track before the entry at {@code index}, or appends it when {@code index} is null.
+     */
+    @Transactional
+    public PlaylistDTO addTrack(UUID id, UUID audioId, @Nullable Integer index) {
+        Playlist playlist = lockPlaylist(id);
+        if (!audioRepository.existsById(audioId)) {
+            throw new ResourceNotFoundException("Audio", audioId);
+        }
+
+        long position;
+        if (index == null) {
+            position = playlistTrackRepository.findMaxPosition(id).map(max -> max + POSITION_GAP).orElse(0L);
+        } else {
+            if (index < 0 || (index > 0 && playlistTrackRepository.findAtIndex(id, index - 1, 1).isEmpty())) {
+                throw new IllegalArgumentException("Track index out of range: " + index);
+            }
+            position = positionAfter(id, index - 1);
+        }
+
+        playlistTrackRepository.save(PlaylistTrack.builder()
+                .playlistId(id)
+                .audioId(audioId)
+                .position(position)
+                .build());
+        return touched(playlist);
+    }
+
+    @Transactional
+    public PlaylistDTO moveTrack(UUID id, int from, int to) {
+        Playlist playlist = lockPlaylist(id);
+        PlaylistTrack entry = entryAt(id, from);
+        if (from == to) {
+            return toDTO(playlist);
+        }
+        if (to < 0 || (to > from && playlistTrackRepository.findAtIndex(id, to, 1).isEmpty())) {
+            throw new IllegalArgumentException("Track index out of range: " + to);
+        }
+
+        // Neighbours are looked up in the current order, in which the moved entry sits on the far side of both
+        entry.setPosition(positionAfter(id, to > from ? to : to - 1));
+        playlistTrackRepository.save(entry);
+        return touched(playlist);
+    }
+
+    @Transactional
+    public PlaylistDTO removeTrack(UUID id, int index) {
+        Playlist playlist = lockPlaylist(id);
+        playlistTrackRepository.delete(entryAt(id, index));
+        return touched(playlist);
+    }
+
     @Transactional
     public void delete(UUID id) {
         Playlist playlist = playlistRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Playlist", id));
 
+        playlistTrackRepository.deleteByPlaylistId(id);
         playlistRepository.delete(playlist);
+        audioPackService.playlistDeletedAfterCommit(id);
         log.info("Deleted playlist: {}", playlist.getName());
     }
 
+    /**
+     * Moves track lists stored as JSON on the playlist row into playlist_tracks.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void migrateLegacyTrackIds() {
+        for (Playlist playlist : playlistRepository.findByLegacyTrackIdsIsNotNull()) {
+            List<UUID> trackIds = validateAndFilterTrackIds(deserializeTrackIds(playlist.getLegacyTrackIds()));
+            playlistTrackRepository.deleteByPlaylistId(playlist.getId());
+            insertTracks(playlist.getId(), trackIds);
+            playlist.setLegacyTrackIds(null);
+            playlistRepository.save(playlist);
+            log.info("Migrated {} tracks of playlist {} into playlist_tracks", trackIds.size(), playlist.getName());
+        }
+    }
+
+    private Playlist lockPlaylist(UUID id) {
+        return playlistRepository.findForUpdate(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Playlist", id));
+    }
+
+    private PlaylistTrack entryAt(UUID id, int index) {
+        List<PlaylistTrack> entries = index < 0 ? List.of() : playlistTrackRepository.findAtIndex(id, index, 1);
+        if (entries.isEmpty()) {
+            throw new IllegalArgumentException("Track index out of range: " + index);
+        }
+        return entries.get(0);
+    }
+
+    /**
+     * Returns a position between the entries at {@code index} and {@code index + 1}; -1 means before the first.
+     */
+    private long positionAfter(UUID id, int index) {
+        List<PlaylistTrack> neighbours = index < 0
+                ? playlistTrackRepository.findAtIndex(id, 0, 1)
+                : playlistTrackRepository.findAtIndex(id, index, 2);
+        Long lower = index < 0 || neighbours.isEmpty() ? null : neighbours.get(0).getPosition();
+        Long upper = index < 0
+                ? (neighbours.isEmpty() ? null : neighbours.get(0).getPosition())
+                : (neighbours.size() > 1 ? neighbours.get(1).getPosition() : null);
+
+        if (lower == null && upper == null) {
+            return 0;
+        }
+        if (lower == null) {
+            return upper - POSITION_GAP;
+        }
+        if (upper == null) {
+            return lower + POSITION_GAP;
+        }
+        if (upper - lower < 2) {
+            renumber(id);
+            return positionAfter(id, index);
+        }
+        return lower + (upper - lower) / 2;
+    }
+
+    private void renumber(UUID id) {
+        List<PlaylistTrack> entries = playlistTrackRepository.findByPlaylistIdOrderByPositionAscIdAsc(id);
+        for (int i = 0; i < entries.size(); i++) {
+            entries.get(i).setPosition(i * POSITION_GAP);
+        }
+        playlistTrackRepository.saveAllAndFlush(entries);
+        log.info("Renumbered {} tracks of playlist {}", entries.size(), id);
+    }
+
+    private void insertTracks(UUID id, List<UUID> trackIds) {
+        List<PlaylistTrack> entries = new ArrayList<>(trackIds.size());
+        for (int i = 0; i < trackIds.size(); i++) {
+            entries.add(PlaylistTrack.builder()
+                    .playlistId(id)
+                    .audioId(trackIds.get(i))
+                    .position(i * POSITION_GAP)
+                    .build());
+        }
+        playlistTrackRepository.saveAll(entries);
+    }
+
+    private PlaylistDTO touched(Playlist playlist) {
+        playlist.setUpdatedAt(LocalDateTime.now());
+        audioPackService.playlistChangedAfterCommit(playlist.getId());
+        return toDTO(playlistRepository.save(playlist));
+    }
+
     private PlaylistDTO toDTO(Playlist playlist) {
+        return toDTO(playlist, playlistTrackRepository.findAudioIdsByPlaylistId(playlist.getId()));
+    }
+
+    private PlaylistDTO toDTO(Playlist playlist, List<UUID> trackIds) {
         return new PlaylistDTO(
                 playlist.getId(),
                 playlist.getName(),
                 playlist.getDescription(),
-                deserializeTrackIds(playlist.getTrackIds()),
+                trackIds,
                 playlist.getCreatedAt(),
                 playlist.getUpdatedAt()
         );
     }
 
+    /**
+     * Keeps the ids that refer to existing tracks, checked with a single IN query.
+     */
     private List<UUID> validateAndFilterTrackIds(List<UUID> trackIds) {
         if (trackIds == null || trackIds.isEmpty()) {
             return new ArrayList<>();
         }
-        
-        // Get all existing audio IDs from the database
-        Set<UUID> existingAudioIds = audioRepository.findAll().stream()
-                .map(audio -> audio.getId())
-                .collect(Collectors.toSet());
-        
-        // Filter trackIds to only include those that exist in the audio table
+
+        Set<UUID> existingAudioIds = audioRepository.findExistingIds(new HashSet<>(trackIds));
         return trackIds.stream()
                 .filter(existingAudioIds::contains)
                 .collect(Collectors.toList());
     }
 
-    private String serializeTrackIds(List<UUID> trackIds) {
-        if (trackIds == null || trackIds.isEmpty()) {
-            return "[]";
-        }
-        try {
-            return objectMapper.writeValueAsString(trackIds);
-        } catch (JsonProcessingException e) {
-            log.error("Failed to serialize track IDs", e);
-            return "[]";
-        }
-    }
-
     private List<UUID> deserializeTrackIds(String trackIdsJson) {
         if (trackIdsJson == null || trackIdsJson.isEmpty()) {
             return new ArrayList<>();
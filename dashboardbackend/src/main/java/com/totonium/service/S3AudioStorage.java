@@ -0,0 +1,271 @@
+package com.totonium.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stores objects in an S3-compatible bucket (AWS S3, MinIO, Garage, ...), so several backend nodes can share one
+ * library. Requests are signed with AWS Signature Version 4 and sent with the JDK HTTP client.
+ * <p>
+ * Reads are ranged GETs for exactly the bytes asked for, so a client's Range request turns into the same range on
+ * the bucket and nothing is buffered beyond the copy buffer. Object metadata is cached, since objects never change
+ * under a key.
+ */
+@Service
+@ConditionalOnProperty(name = "app.audio.storage.type", havingValue = "s3")
+@Slf4j
+public class S3AudioStorage implements AudioStorage {
+
+    private static final String ALGORITHM = "AWS4-HMAC-SHA256";
+    private static final String SERVICE = "s3";
+    private static final String EMPTY_PAYLOAD_HASH = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final int STAT_CACHE_SIZE = 4096;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final Map<String, StoredObject> stats = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, StoredObject> eldest) {
+            return size() > STAT_CACHE_SIZE;
+        }
+    };
+
+    @Value("${app.audio.storage.s3.endpoint}")
+    private URI endpoint;
+
+    @Value("${app.audio.storage.s3.region:us-east-1}")
+    private String region;
+
+    @Value("${app.audio.storage.s3.bucket}")
+    private String bucket;
+
+    @Value("${app.audio.storage.s3.access-key}")
+    private String accessKey;
+
+    @Value("${app.audio.storage.s3.secret-key}")
+    private String secretKey;
+
+    // MinIO and most self-hosted stores only support path-style addressing
+    @Value("${app.audio.storage.s3.path-style:true}")
+    private boolean pathStyle;
+
+    @Override
+    public void put(String key, Path file) throws IOException {
+        String payloadHash = AudioBlobService.hash(file);
+        HttpRequest request = signed("PUT", key, payloadHash, Map.of())
+                .PUT(HttpRequest.BodyPublishers.ofFile(file))
+                .build();
+        HttpResponse<String> response = send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw failure("PUT", key, response.statusCode(), response.body());
+        }
+        Files.deleteIfExists(file);
+        log.debug("Stored {} in bucket {}", key, bucket);
+    }
+
+    @Override
+    public @Nullable StoredObject stat(String key) throws IOException {
+        synchronized (stats) {
+            StoredObject cached = stats.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        HttpRequest request = signed("HEAD", key, EMPTY_PAYLOAD_HASH, Map.of())
+                .HEAD()
+                .build();
+        HttpResponse<Void> response = send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() == 404) {
+            return null;
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw failure("HEAD", key, response.statusCode(), "");
+        }
+
+        long length = response.headers().firstValueAsLong(HttpHeaders.CONTENT_LENGTH)
+                .orElseThrow(() -> new IOException("HEAD " + key + " returned no Content-Length"));
+        long lastModified = response.headers().firstValue(HttpHeaders.LAST_MODIFIED)
+                .map(value -> ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli())
+                .orElse(0L);
+        StoredObject object = new StoredObject(length, lastModified);
+        synchronized (stats) {
+            stats.put(key, object);
+        }
+        return object;
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        synchronized (stats) {
+            stats.remove(key);
+        }
+        HttpRequest request = signed("DELETE", key, EMPTY_PAYLOAD_HASH, Map.of()).DELETE().build();
+        HttpResponse<String> response = send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2 && response.statusCode() != 404) {
+            throw failure("DELETE", key, response.statusCode(), response.body());
+        }
+    }
+
+    @Override
+    public ReadableByteChannel open(String key, long offset, long count) throws IOException {
+        String range = "bytes=" + offset + "-" + (offset + count - 1);
+        HttpRequest request = signed("GET", key, EMPTY_PAYLOAD_HASH, Map.of(HttpHeaders.RANGE, range))
+                .GET()
+                .build();
+        HttpResponse<InputStream> response = send(request, HttpResponse.BodyHandlers.ofInputStream());
+        InputStream body = response.body();
+        int status = response.statusCode();
+        if (status == 404) {
+            body.close();
+            throw new NoSuchFileException(key);
+        }
+        if (status != 206 && status != 200) {
+            String message;
+            try (body) {
+                message = new String(body.readNBytes(1024), StandardCharsets.UTF_8);
+            }
+            throw failure("GET", key, status, message);
+        }
+        // A store that ignores Range sends the whole object
+        if (status == 200 && offset > 0) {
+            body.skipNBytes(offset);
+        }
+        return Channels.newChannel(body);
+    }
+
+    /**
+     * Builds a request for {@code key} carrying {@code headers} and a SigV4 Authorization header over them.
+     */
+    private HttpRequest.Builder signed(String method, String key, String payloadHash, Map<String, String> headers) {
+        String host = pathStyle ? endpoint.getHost() : bucket + "." + endpoint.getHost();
+        if (endpoint.getPort() != -1 && endpoint.getPort() != defaultPort(endpoint.getScheme())) {
+            host += ":" + endpoint.getPort();
+        }
+        String basePath = endpoint.getRawPath() == null ? "" : endpoint.getRawPath().replaceAll("/+$", "");
+        String path = basePath + (pathStyle ? "/" + encode(bucket) : "") + "/" + encodePath(key);
+
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        String amzDate = AMZ_DATE.format(now);
+        String date = amzDate.substring(0, 8);
+        String scope = date + "/" + region + "/" + SERVICE + "/aws4_request";
+
+        String signedHeaders = "host;x-amz-content-sha256;x-amz-date";
+        String canonicalRequest = method + "\n"
+                + path + "\n"
+                + "\n"
+                + "host:" + host + "\n"
+                + "x-amz-content-sha256:" + payloadHash + "\n"
+                + "x-amz-date:" + amzDate + "\n"
+                + "\n"
+                + signedHeaders + "\n"
+                + payloadHash;
+        String stringToSign = ALGORITHM + "\n" + amzDate + "\n" + scope + "\n" + sha256Hex(canonicalRequest);
+
+        byte[] signingKey = hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), date);
+        signingKey = hmac(signingKey, region);
+        signingKey = hmac(signingKey, SERVICE);
+        signingKey = hmac(signingKey, "aws4_request");
+        String signature = HexFormat.of().formatHex(hmac(signingKey, stringToSign));
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(endpoint.getScheme() + "://" + host + path))
+                .timeout(Duration.ofSeconds(60))
+                .header("x-amz-date", amzDate)
+                .header("x-amz-content-sha256", payloadHash)
+                .header(HttpHeaders.AUTHORIZATION, ALGORITHM + " Credential=" + accessKey + "/" + scope
+                        + ", SignedHeaders=" + signedHeaders + ", Signature=" + signature);
+        headers.forEach(builder::header);
+        return builder;
+    }
+
+    private <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+        try {
+            return client.send(request, handler);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted during " + request.method() + " " + request.uri(), e);
+        }
+    }
+
+    private IOException failure(String method, String key, int status, String body) {
+        return new IOException(method + " " + bucket + "/" + key + " failed with HTTP " + status
+                + (body.isBlank() ? "" : ": " + body.strip()));
+    }
+
+    private static int defaultPort(String scheme) {
+        return "https".equalsIgnoreCase(scheme) ? 443 : 80;
+    }
+
+    private static String encodePath(String key) {
+        StringBuilder path = new StringBuilder();
+        for (String segment : key.split("/", -1)) {
+            if (!path.isEmpty()) {
+                path.append('/');
+            }
+            path.append(encode(segment));
+        }
+        return path.toString();
+    }
+
+    /**
+     * Percent-encodes everything but RFC 3986 unreserved characters, as SigV4 requires.
+     */
+    private static String encode(String value) {
+        StringBuilder encoded = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xff);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~') {
+                encoded.append(c);
+            } else {
+                encoded.append('%').append(HexFormat.of().withUpperCase().toHexDigits(b));
+            }
+        }
+        return encoded.toString();
+    }
+
+    private static String sha256Hex(String value) {
+        return HexFormat.of().formatHex(AudioBlobService.newContentDigest().digest(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static byte[] hmac(byte[] key, String value) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.totonium.service;
 import com.totonium.dto.*;
 import com.totonium.entity.Statblock;
 import com.totonium.exception.ResourceNotFoundException;
+import com.totonium.repository.CombatantRepository;
 import com.totonium.repository.StatblockRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
@@ -18,6 +19,9 @@ import java.util.stream.Collectors;
 public class StatblockService {
 
     private final StatblockRepository statblockRepository;
+    private final CombatantService combatantService;
+    private final CombatantRepository combatantRepository;
+    private final TurnReminderService turnReminderService;
 
     @Transactional(readOnly = true)
     public List<StatblockDTO> findAll() {
@@ -126,6 +130,12 @@ public class StatblockService {
         if (request.isLocal() != null) statblock.setIsLocal(request.isLocal());
 
         Statblock saved = statblockRepository.save(statblock);
+        if (request.damageImmunities() != null || request.damageResistances() != null
+                || request.damageVulnerabilities() != null) {
+            combatantService.refreshDamageMasks(saved);
+        }
+        // Reminder schedules are compiled from the statblock's actions and traits, so any edit can change them.
+        combatantRepository.findEncounterIdsByStatblockId(saved.getId()).forEach(turnReminderService::invalidate);
         return toDTO(saved);
     }
 
@@ -137,6 +147,31 @@ public class StatblockService {
         statblockRepository.deleteById(id);
     }
 
+    StatblockSummaryDTO toSummaryDTO(Statblock entity) {
+        return new StatblockSummaryDTO(
+                entity.getId(),
+                entity.getName(),
+                entity.getSize(),
+                entity.getType(),
+                entity.getAlignment(),
+                entity.getArmorClass(),
+                entity.getHitPoints(),
+                entity.getHitDice(),
+                entity.getSpeed(),
+                entity.getScores(),
+                entity.getDamageImmunities(),
+                entity.getDamageResistances(),
+                entity.getDamageVulnerabilities(),
+                entity.getConditionImmunities(),
+                entity.getPassivePerception(),
+                entity.getChallengeRating(),
+                entity.getReactions(),
+                entity.getLegendaryActions(),
+                entity.getLairActions(),
+                entity.getMythicTrait()
+        );
+    }
+
     private StatblockDTO toDTO(Statblock entity) {
         return new StatblockDTO(
                 entity.getId(),
@@ -0,0 +1,421 @@
+package com.totonium.service;
+
+import com.totonium.dto.StorageReconcileReportDTO;
+import com.totonium.entity.Audio;
+import com.totonium.entity.AudioBlob;
+import com.totonium.repository.AudioBlobRepository;
+import com.totonium.repository.AudioRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Brings the upload directory and the audio tables back in line after crashes or manual changes on disk.
+ * <p>
+ * The blob store is reconciled one hash-prefix directory at a time, several in parallel, so memory is bounded by
+ * the largest partition rather than the library:
+ * <ul>
+ *     <li>files without a blob row are moved to {@code <upload-dir>/quarantine/<run>/} rather than deleted,</li>
+ *     <li>tracks whose file is missing get {@code missingAt} set, and cleared again if the file comes back,</li>
+ *     <li>blob reference counts are corrected to the number of tracks using them, removing unused blobs.</li>
+ * </ul>
+ * Files younger than the grace period are left alone, since an upload may be between writing its file and
+ * committing its row. A reference count is only corrected when the same mismatch was already seen by the previous
+ * run, so uploads in flight never look like a mismatch twice. Quarantined files are deleted after the retention
+ * period. Runs on a background thread, never on a request or scheduler thread.
+ * <p>
+ * Orphaned files are only looked for when the storage backend keeps files on the local disk; with a remote backend
+ * the database side (missing files, reference counts) is still reconciled.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageReconcileService {
+
+    private static final DateTimeFormatter RUN_NAME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final int PARTITIONS = 256;
+
+    private final AudioRepository audioRepository;
+    private final AudioBlobRepository audioBlobRepository;
+    private final AudioBlobService audioBlobService;
+    private final AudioStorage audioStorage;
+
+    @Value("${app.audio.upload-dir:uploads/audio}")
+    private String uploadDir;
+
+    @Value("${app.audio.reconcile.parallelism:4}")
+    private int parallelism;
+
+    @Value("${app.audio.reconcile.grace:1h}")
+    private Duration grace;
+
+    @Value("${app.audio.reconcile.staging-grace:48h}")
+    private Duration stagingGrace;
+
+    @Value("${app.audio.reconcile.quarantine-retention:7d}")
+    private Duration quarantineRetention;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    // Reference count mismatches seen by the previous run, keyed by content hash
+    private volatile Map<String, RefMismatch> suspects = Map.of();
+
+    @Nullable
+    private volatile StorageReconcileReportDTO lastReport;
+
+    /**
+     * Hands the run to its own thread so the scheduler stays free for heartbeats and sweeps meanwhile.
+     */
+    @Scheduled(cron = "${app.audio.reconcile.cron:0 0 5 * * *}")
+    public void scheduledReconcile() {
+        if (!startReconcile()) {
+            log.info("Storage reconciliation already running, skipping");
+        }
+    }
+
+    /**
+     * Starts a run on a background thread.
+     *
+     * @return false if a run is already in progress
+     */
+    public boolean startReconcile() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread.ofVirtual().name("storage-reconcile").start(() -> {
+            try {
+                runReconcile();
+            } finally {
+                running.set(false);
+            }
+        });
+        return true;
+    }
+
+    public Optional<StorageReconcileReportDTO> getLastReport() {
+        return Optional.ofNullable(lastReport);
+    }
+
+    private StorageReconcileReportDTO runReconcile() {
+        LocalDateTime startedAt = LocalDateTime.now();
+        Run run = new Run(quarantineRoot().resolve(RUN_NAME.format(startedAt)), startedAt);
+        log.info("Reconciling audio storage in {}", Paths.get(uploadDir).toAbsolutePath());
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, parallelism))) {
+            for (int i = 0; i < PARTITIONS; i++) {
+                String prefix = "%02x".formatted(i);
+                executor.execute(() -> guarded(run, "partition " + prefix, () -> reconcilePartition(prefix, run)));
+            }
+            executor.execute(() -> guarded(run, "legacy files", () -> reconcileLegacy(run)));
+            executor.execute(() -> guarded(run, "staging files", () -> reconcileStaging(run)));
+        }
+        suspects = run.mismatches;
+        guarded(run, "quarantine purge", () -> purgeQuarantine(run));
+
+        StorageReconcileReportDTO report = run.toReport(LocalDateTime.now());
+        lastReport = report;
+        log.info("Storage reconciliation finished: {}", report);
+        return report;
+    }
+
+    private void reconcilePartition(String prefix, Run run) throws IOException {
+        Map<String, AudioBlob> blobs = audioBlobRepository.findByContentHashStartingWith(prefix).stream()
+                .collect(Collectors.toMap(AudioBlob::getContentHash, blob -> blob));
+        Map<String, Long> references = audioRepository.countByContentHashPrefix(prefix).stream()
+                .collect(Collectors.toMap(AudioRepository.HashReferences::getContentHash,
+                        AudioRepository.HashReferences::getRowCount));
+
+        // Files on disk that no blob row accounts for
+        Set<String> present = new HashSet<>();
+        Path dir = audioStorage.localPath(AudioBlobService.BLOB_PREFIX + prefix);
+        if (dir != null && Files.isDirectory(dir)) {
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    run.filesScanned.incrementAndGet();
+                    String name = file.getFileName().toString();
+                    AudioBlob blob = blobs.get(name);
+                    if (blob != null && AudioBlobService.blobKey(name).equals(blob.getFilePath())) {
+                        present.add(name);
+                    } else if (isOlderThan(file, grace)) {
+                        quarantine(file, run);
+                    }
+                }
+            }
+        }
+
+        // Peak sidecars are derived data, so ones left without a blob are deleted rather than quarantined
+        Path peaksDir = audioStorage.localPath(AudioPeaksService.PEAKS_PREFIX + prefix);
+        if (peaksDir != null && Files.isDirectory(peaksDir)) {
+            try (Stream<Path> files = Files.list(peaksDir)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (!blobs.containsKey(file.getFileName().toString()) && isOlderThan(file, grace)) {
+                        Files.deleteIfExists(file);
+                        log.info("Deleted waveform peaks without a blob: {}", file);
+                    }
+                }
+            }
+        }
+
+        // Blob rows and tracks whose file is gone. A blob that cannot be looked up is neither missing nor present:
+        // a storage outage must not flag every track, so it counts as an error and its tracks are left as they are
+        Set<String> missing = new HashSet<>();
+        IOException lookupFailure = null;
+        int lookupFailures = 0;
+        for (AudioBlob blob : blobs.values()) {
+            run.blobsScanned.incrementAndGet();
+            String hash = blob.getContentHash();
+            if (!present.contains(hash)) {
+                try {
+                    if (audioStorage.stat(blob.getFilePath()) != null) {
+                        present.add(hash);
+                    } else {
+                        missing.add(hash);
+                        run.missingFiles.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    lookupFailure = e;
+                    lookupFailures++;
+                    run.errors.incrementAndGet();
+                }
+            }
+            checkRefCount(blob, references.getOrDefault(hash, 0L), run);
+        }
+        if (lookupFailure != null) {
+            log.warn("Could not look up {} blobs of partition {}: {}", lookupFailures, prefix, lookupFailure.toString());
+        }
+        for (String hash : references.keySet()) {
+            if (!blobs.containsKey(hash)) {
+                missing.add(hash);
+                run.missingFiles.incrementAndGet();
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            run.tracksFlagged.addAndGet(audioRepository.flagMissing(missing, run.startedAt));
+        }
+        present.retainAll(references.keySet());
+        if (!present.isEmpty()) {
+            run.tracksRestored.addAndGet(audioRepository.clearMissing(present));
+        }
+    }
+
+    private void checkRefCount(AudioBlob blob, long references, Run run) {
+        if (blob.getRefCount() == references) {
+            return;
+        }
+        RefMismatch mismatch = new RefMismatch(blob.getRefCount(), references);
+        boolean confirmed = mismatch.equals(suspects.get(blob.getContentHash()))
+                && blob.getCreatedAt() != null
+                && blob.getCreatedAt().isBefore(run.startedAt.minus(grace));
+        if (!confirmed) {
+            run.mismatches.put(blob.getContentHash(), mismatch);
+            return;
+        }
+        if (audioBlobService.correctRefCount(blob.getContentHash(), blob.getRefCount(), references,
+                key -> dispose(key, run))) {
+            run.refCountsCorrected.incrementAndGet();
+        }
+    }
+
+    /**
+     * Files left at the top of the upload directory from before content addressing. Tracks still pointing there
+     * were not adopted into the blob store because their file was already missing.
+     */
+    private void reconcileLegacy(Run run) throws IOException {
+        Path root = Paths.get(uploadDir);
+        if (Files.isDirectory(root)) {
+            try (Stream<Path> files = Files.list(root)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    if (!Files.isRegularFile(file)) {
+                        continue;
+                    }
+                    run.filesScanned.incrementAndGet();
+                    if (!audioRepository.existsByFilePath(file.toString()) && isOlderThan(file, grace)) {
+                        quarantine(file, run);
+                    }
+                }
+            }
+        }
+
+        List<UUID> missing = new ArrayList<>();
+        List<UUID> present = new ArrayList<>();
+        for (Audio audio : audioRepository.findByContentHashIsNull()) {
+            (Files.exists(Paths.get(audio.getFilePath())) ? present : missing).add(audio.getId());
+        }
+        run.missingFiles.addAndGet(missing.size());
+        if (!missing.isEmpty()) {
+            run.tracksFlagged.addAndGet(audioRepository.flagMissingById(missing, run.startedAt));
+        }
+        if (!present.isEmpty()) {
+            run.tracksRestored.addAndGet(audioRepository.clearMissingById(present));
+        }
+    }
+
+    /**
+     * Staging files of uploads that were abandoned, or interrupted by a restart.
+     */
+    private void reconcileStaging(Run run) throws IOException {
+        Path staging = Paths.get(uploadDir, "tmp");
+        if (!Files.isDirectory(staging)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(staging)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                run.filesScanned.incrementAndGet();
+                if (isOlderThan(file, stagingGrace)) {
+                    quarantine(file, run);
+                }
+            }
+        }
+    }
+
+    private void purgeQuarantine(Run run) throws IOException {
+        Path root = quarantineRoot();
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        LocalDateTime cutoff = run.startedAt.minus(quarantineRetention);
+        try (Stream<Path> runs = Files.list(root)) {
+            for (Path dir : (Iterable<Path>) runs::iterator) {
+                LocalDateTime quarantinedAt;
+                try {
+                    quarantinedAt = LocalDateTime.parse(dir.getFileName().toString(), RUN_NAME);
+                } catch (DateTimeParseException e) {
+                    continue;
+                }
+                if (quarantinedAt.isBefore(cutoff)) {
+                    run.reclaimedBytes.addAndGet(deleteTree(dir));
+                    log.info("Deleted quarantine {}", dir);
+                }
+            }
+        }
+    }
+
+    private void dispose(String key, Run run) {
+        Path file = audioStorage.localPath(key);
+        if (file != null) {
+            quarantine(file, run);
+            return;
+        }
+        try {
+            audioStorage.delete(key);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to delete " + key, e);
+        }
+    }
+
+    private void quarantine(Path file, Run run) {
+        Path root = Paths.get(uploadDir).toAbsolutePath().normalize();
+        Path absolute = file.toAbsolutePath().normalize();
+        Path target = run.quarantine.resolve(absolute.startsWith(root) ? root.relativize(absolute) : file.getFileName());
+        try {
+            long size = Files.size(file);
+            Files.createDirectories(target.getParent());
+            Files.move(file, target);
+            run.orphansQuarantined.incrementAndGet();
+            run.quarantinedBytes.addAndGet(size);
+            log.info("Quarantined orphaned file {} ({} bytes)", file, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to quarantine " + file, e);
+        }
+    }
+
+    private long deleteTree(Path dir) throws IOException {
+        long bytes = 0;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                if (Files.isRegularFile(path)) {
+                    bytes += Files.size(path);
+                }
+                Files.delete(path);
+            }
+        }
+        return bytes;
+    }
+
+    private Path quarantineRoot() {
+        return Paths.get(uploadDir, "quarantine");
+    }
+
+    private boolean isOlderThan(Path file, Duration age) throws IOException {
+        Instant modified = Files.readAttributes(file, BasicFileAttributes.class).lastModifiedTime().toInstant();
+        return modified.isBefore(Instant.now().minus(age));
+    }
+
+    private void guarded(Run run, String step, IoAction action) {
+        try {
+            action.run();
+        } catch (IOException | RuntimeException e) {
+            run.errors.incrementAndGet();
+            log.warn("Storage reconciliation of {} failed", step, e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    private record RefMismatch(int refCount, long references) {
+    }
+
+    /**
+     * Counters of one run, shared by the partition tasks.
+     */
+    private static final class Run {
+        private final Path quarantine;
+        private final LocalDateTime startedAt;
+        private final Map<String, RefMismatch> mismatches = new ConcurrentHashMap<>();
+        private final AtomicLong filesScanned = new AtomicLong();
+        private final AtomicLong blobsScanned = new AtomicLong();
+        private final AtomicLong orphansQuarantined = new AtomicLong();
+        private final AtomicLong quarantinedBytes = new AtomicLong();
+        private final AtomicLong missingFiles = new AtomicLong();
+        private final AtomicLong tracksFlagged = new AtomicLong();
+        private final AtomicLong tracksRestored = new AtomicLong();
+        private final AtomicLong refCountsCorrected = new AtomicLong();
+        private final AtomicLong reclaimedBytes = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+
+        private Run(Path quarantine, LocalDateTime startedAt) {
+            this.quarantine = quarantine;
+            this.startedAt = startedAt;
+        }
+
+        private StorageReconcileReportDTO toReport(LocalDateTime finishedAt) {
+            return new StorageReconcileReportDTO(startedAt, finishedAt, filesScanned.get(), blobsScanned.get(),
+                    orphansQuarantined.get(), quarantinedBytes.get(), missingFiles.get(), tracksFlagged.get(),
+                    tracksRestored.get(), refCountsCorrected.get(), reclaimedBytes.get(), errors.get());
+        }
+    }
+}
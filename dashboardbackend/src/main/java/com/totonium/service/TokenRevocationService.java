@@ -0,0 +1,191 @@
+package com.totonium.service;
+
+import com.totonium.entity.RevokedToken;
+import com.totonium.repository.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.Stream;
+
+/**
+ * Remembers signed-out tokens until they expire, across restarts.
+ * <p>
+ * Revocations are keyed by token id and written to the {@code revoked_tokens} table, which is loaded at startup.
+ * In memory they sit in a hashed timer wheel: each id goes in the slot of the sweep tick at which its token
+ * expires, and every tick drops the expired ids of one slot, so memory is bounded by the tokens still live rather
+ * than by every logout ever made. A Bloom filter in front answers the usual "not revoked" case without touching
+ * the map; it is rebuilt from the live ids once sweeping has left it mostly stale.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TokenRevocationService {
+
+    private static final int WHEEL_SLOTS = 256;
+    private static final int BLOOM_HASHES = 7;
+    // ~1% false positives at the expected size
+    private static final int BLOOM_BITS_PER_ENTRY = 10;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    @Value("${app.jwt.revocation.sweep-interval:PT1M}")
+    private Duration sweepInterval;
+
+    @Value("${app.jwt.revocation.expected-entries:10000}")
+    private int expectedEntries;
+
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+    private final List<Set<String>> wheel = Stream
+            .<Set<String>>generate(ConcurrentHashMap::newKeySet)
+            .limit(WHEEL_SLOTS)
+            .toList();
+    private volatile BloomFilter bloom;
+    private long tickMillis;
+    private long lastSweptTick;
+    private int evictedSinceRebuild;
+
+    @PostConstruct
+    public void init() {
+        tickMillis = Math.max(1, sweepInterval.toMillis());
+        lastSweptTick = System.currentTimeMillis() / tickMillis;
+        bloom = new BloomFilter(expectedEntries);
+
+        revokedTokenRepository.deleteExpired(LocalDateTime.now());
+        for (RevokedToken token : revokedTokenRepository.findAll()) {
+            track(token.getTokenId(), token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+        log.info("Loaded {} revoked tokens", revoked.size());
+    }
+
+    /**
+     * Revokes the token with the given id until {@code expiresAt}, after which it is rejected as expired anyway.
+     */
+    public void revoke(String tokenId, Instant expiresAt) {
+        if (!expiresAt.isAfter(Instant.now())) {
+            return;
+        }
+        revokedTokenRepository.save(RevokedToken.builder()
+                .tokenId(tokenId)
+                .expiresAt(LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault()))
+                .build());
+        track(tokenId, expiresAt.toEpochMilli());
+    }
+
+    public boolean isRevoked(String tokenId) {
+        return bloom.mightContain(tokenId) && revoked.containsKey(tokenId);
+    }
+
+    /**
+     * Advances the wheel to the current tick, dropping the ids that expired in the slots passed over.
+     */
+    @Scheduled(fixedDelayString = "${app.jwt.revocation.sweep-interval:PT1M}")
+    public synchronized void sweep() {
+        long now = System.currentTimeMillis();
+        long currentTick = now / tickMillis;
+        // After a long pause every slot is due, but each only needs visiting once
+        long fromTick = Math.max(lastSweptTick + 1, currentTick - WHEEL_SLOTS + 1);
+        int evicted = 0;
+        for (long tick = fromTick; tick <= currentTick; tick++) {
+            Iterator<String> slot = wheel.get(Math.floorMod(tick, WHEEL_SLOTS)).iterator();
+            while (slot.hasNext()) {
+                String tokenId = slot.next();
+                Long expiresAt = revoked.get(tokenId);
+                // Ids expiring a full turn or more later share the slot and stay for a later pass
+                if (expiresAt == null || expiresAt <= now) {
+                    slot.remove();
+                    revoked.remove(tokenId);
+                    evicted++;
+                }
+            }
+        }
+        lastSweptTick = currentTick;
+        if (evicted == 0) {
+            return;
+        }
+
+        revokedTokenRepository.deleteExpired(LocalDateTime.ofInstant(Instant.ofEpochMilli(now), ZoneId.systemDefault()));
+        evictedSinceRebuild += evicted;
+        if (evictedSinceRebuild > revoked.size()) {
+            BloomFilter rebuilt = new BloomFilter(Math.max(expectedEntries, revoked.size() * 2));
+            revoked.keySet().forEach(rebuilt::add);
+            bloom = rebuilt;
+            evictedSinceRebuild = 0;
+        }
+        log.debug("Swept {} expired token revocations, {} remain", evicted, revoked.size());
+    }
+
+    /**
+     * Synchronized with {@link #sweep()} so an id added while the Bloom filter is being rebuilt is never missing
+     * from the filter that replaces it.
+     */
+    private synchronized void track(String tokenId, long expiresAt) {
+        revoked.put(tokenId, expiresAt);
+        bloom.add(tokenId);
+        // Rounded up so the slot is swept no earlier than the expiry
+        long tick = (expiresAt + tickMillis - 1) / tickMillis;
+        wheel.get(Math.floorMod(tick, WHEEL_SLOTS)).add(tokenId);
+    }
+
+    private static final class BloomFilter {
+        private final AtomicLongArray bits;
+        private final int size;
+
+        private BloomFilter(int expectedEntries) {
+            int words = Math.max(1, (expectedEntries * BLOOM_BITS_PER_ENTRY + 63) / 64);
+            bits = new AtomicLongArray(words);
+            size = words * 64;
+        }
+
+        private void add(String key) {
+            int h1 = key.hashCode();
+            int h2 = secondHash(key);
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = Math.floorMod(h1 + i * h2, size);
+                int word = bit >>> 6;
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = bits.get(word);
+                } while ((current & mask) == 0 && !bits.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        private boolean mightContain(String key) {
+            int h1 = key.hashCode();
+            int h2 = secondHash(key);
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = Math.floorMod(h1 + i * h2, size);
+                if ((bits.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * FNV-1a, independent enough of {@link String#hashCode()} for double hashing; forced odd so it is never
+         * zero, which would put every probe on the same bit.
+         */
+        private static int secondHash(String key) {
+            int hash = 0x811C9DC5;
+            for (int i = 0; i < key.length(); i++) {
+                hash = (hash ^ key.charAt(i)) * 0x01000193;
+            }
+            return hash | 1;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.totonium.service;
+
+import com.totonium.dto.TurnReminderDTO;
+import com.totonium.entity.Combatant;
+import com.totonium.entity.Statblock;
+import com.totonium.repository.CombatantRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.jspecify.annotations.Nullable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compiles, per encounter, which ability reminders fire at the start of each combatant's turn
+ * (lair actions at initiative 20, legendary action resets, recharge rolls, mythic traits),
+ * so advancing a turn is a map lookup instead of re-reading every statblock.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TurnReminderService {
+
+    private static final int LAIR_INITIATIVE = 20;
+    private static final int DEFAULT_LEGENDARY_ACTIONS = 3;
+    private static final Pattern RECHARGE = Pattern.compile(
+            "recharge\\s*(\\d)(?:\\s*[-\\u2013]\\s*(\\d))?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern LEGENDARY_COUNT = Pattern.compile(
+            "(\\d+)\\s+legendary actions", Pattern.CASE_INSENSITIVE);
+
+    private final CombatantRepository combatantRepository;
+
+    private final Map<UUID, Map<UUID, List<TurnReminderDTO>>> schedules = new ConcurrentHashMap<>();
+
+    /**
+     * Rebuilds and caches the reminder schedule for an encounter.
+     */
+    public Map<UUID, List<TurnReminderDTO>> compile(UUID encounterId) {
+        List<Combatant> combatants = combatantRepository.findByEncounterIdWithStatblock(encounterId);
+        Map<UUID, List<TurnReminderDTO>> schedule = new HashMap<>();
+
+        // Lair actions happen on initiative count 20, losing ties: before the first combatant
+        // below 20, or at the top of the next round when nobody is below 20.
+        Combatant lairSlot = combatants.stream()
+                .filter(c -> c.getInitiative() < LAIR_INITIATIVE)
+                .findFirst()
+                .orElse(combatants.isEmpty() ? null : combatants.get(0));
+        Set<UUID> lairStatblocks = new HashSet<>();
+
+        for (Combatant combatant : combatants) {
+            Statblock statblock = combatant.getStatblock();
+            if (statblock == null) {
+                continue;
+            }
+            if (statblock.getLairActions() != null && lairSlot != null && lairStatblocks.add(statblock.getId())) {
+                add(schedule, lairSlot.getId(), reminder(TurnReminderDTO.Type.LAIR_ACTION, combatant,
+                        "Lair action (initiative 20)", text(statblock.getLairActions().get("description"))));
+            }
+            if (statblock.getLegendaryActions() != null) {
+                add(schedule, combatant.getId(), reminder(TurnReminderDTO.Type.LEGENDARY_RESET, combatant,
+                        "Legendary actions reset",
+                        legendaryActionCount(statblock) + " legendary actions available until its next turn"));
+            }
+            for (String recharge : rechargeAbilities(statblock)) {
+                add(schedule, combatant.getId(), reminder(TurnReminderDTO.Type.RECHARGE, combatant,
+                        "Recharge roll", recharge));
+            }
+            if (statblock.getMythicTrait() != null) {
+                add(schedule, combatant.getId(), reminder(TurnReminderDTO.Type.MYTHIC_TRAIT, combatant,
+                        "Mythic trait", text(statblock.getMythicTrait().get("description"))));
+            }
+        }
+
+        schedules.put(encounterId, schedule);
+        log.debug("Compiled reminder schedule for encounter {}: {} combatants with reminders",
+                encounterId, schedule.size());
+        return schedule;
+    }
+
+    /**
+     * Reminders to show when the given combatant's turn starts, compiling the schedule on first use.
+     */
+    public List<TurnReminderDTO> remindersFor(UUID encounterId, UUID combatantId) {
+        Map<UUID, List<TurnReminderDTO>> schedule = schedules.get(encounterId);
+        if (schedule == null) {
+            schedule = compile(encounterId);
+        }
+        return schedule.getOrDefault(combatantId, List.of());
+    }
+
+    /**
+     * Drops the cached schedule now and again after the surrounding transaction commits,
+     * so a concurrent turn cannot re-cache the pre-commit combatant list.
+     */
+    public void invalidate(@Nullable UUID encounterId) {
+        if (encounterId == null) {
+            return;
+        }
+        schedules.remove(encounterId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    schedules.remove(encounterId);
+                }
+            });
+        }
+    }
+
+    private List<String> rechargeAbilities(Statblock statblock) {
+        List<String> recharges = new ArrayList<>();
+        for (List<Map<String, String>> abilities : List.of(
+                nullToEmpty(statblock.getActions()),
+                nullToEmpty(statblock.getAbilities()),
+                nullToEmpty(statblock.getReactions()))) {
+            for (Map<String, ?> ability : abilities) {
+                String name = text(ability.get("name"));
+                if (name == null) {
+                    continue;
+                }
+                Matcher matcher = RECHARGE.matcher(name);
+                if (matcher.find()) {
+                    String range = matcher.group(2) != null
+                            ? matcher.group(1) + "-" + matcher.group(2)
+                            : matcher.group(1);
+                    recharges.add(name + ": recharges on a d6 roll of " + range);
+                }
+            }
+        }
+        return recharges;
+    }
+
+    private int legendaryActionCount(Statblock statblock) {
+        String description = text(statblock.getLegendaryActions().get("description"));
+        if (description != null) {
+            Matcher matcher = LEGENDARY_COUNT.matcher(description);
+            if (matcher.find()) {
+                return Integer.parseInt(matcher.group(1));
+            }
+        }
+        return DEFAULT_LEGENDARY_ACTIONS;
+    }
+
+    private static TurnReminderDTO reminder(TurnReminderDTO.Type type, Combatant combatant, String title,
+                                            @Nullable String detail) {
+        return new TurnReminderDTO(type, combatant.getId(), combatant.getName(), title, detail);
+    }
+
+    private static void add(Map<UUID, List<TurnReminderDTO>> schedule, UUID combatantId, TurnReminderDTO reminder) {
+        schedule.computeIfAbsent(combatantId, id -> new ArrayList<>()).add(reminder);
+    }
+
+    private static @Nullable String text(@Nullable Object value) {
+        return value != null ? value.toString() : null;
+    }
+
+    private static <T> List<T> nullToEmpty(@Nullable List<T> list) {
+        return list != null ? list : List.of();
+    }
+}